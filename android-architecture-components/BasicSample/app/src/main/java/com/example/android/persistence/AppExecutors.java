@@ -16,12 +16,13 @@
 
 package com.example.android.persistence;
 
+import com.example.android.persistence.PriorityExecutor.Priority;
+
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Global executor pools for the whole application.
@@ -30,9 +31,18 @@ import java.util.concurrent.Executors;
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
  * webservice requests).
  * 这样的分组任务避免了任务饥饿的影响（例如磁盘读取不在后面等待WebService请求）。
+ * <p>
+ * Disk and network pools run tasks by {@link Priority} and have bounded queues, see
+ * {@link PriorityExecutor}.
  */
 public class AppExecutors {
 
+    private static final int DISK_IO_THREADS = 1;
+
+    private static final int NETWORK_IO_THREADS = 3;
+
+    private static final int QUEUE_CAPACITY = 64;
+
     private final Executor mDiskIO;
 
     private final Executor mNetworkIO;
@@ -45,11 +55,16 @@ public class AppExecutors {
         this.mMainThread = mainThread;
     }
 
-    public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
+    public AppExecutors(int diskIOThreads, int networkIOThreads, int queueCapacity) {
+        this(new PriorityExecutor("disk-io", diskIOThreads, queueCapacity),
+                new PriorityExecutor("network-io", networkIOThreads, queueCapacity),
                 new MainThreadExecutor());
     }
 
+    public AppExecutors() {
+        this(DISK_IO_THREADS, NETWORK_IO_THREADS, QUEUE_CAPACITY);
+    }
+
     public Executor diskIO() {
         return mDiskIO;
     }
@@ -62,6 +77,32 @@ public class AppExecutors {
         return mMainThread;
     }
 
+    /**
+     * Tasks that are not {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor diskIO(Priority priority) {
+        return withPriority(mDiskIO, priority);
+    }
+
+    /**
+     * Tasks that are not {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor networkIO(Priority priority) {
+        return withPriority(mNetworkIO, priority);
+    }
+
+    @Override
+    public String toString() {
+        return "AppExecutors{diskIO=" + mDiskIO + ", networkIO=" + mNetworkIO + '}';
+    }
+
+    private static Executor withPriority(Executor executor, Priority priority) {
+        if (executor instanceof PriorityExecutor) {
+            return ((PriorityExecutor) executor).withPriority(priority);
+        }
+        return executor;
+    }
+
     // 主线程中事件交给Handler 处理
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor;
+import com.android.example.github.PriorityExecutor.Priority;
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.FetchedResource;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.database.Cursor;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.android.example.github.util.LiveDataTestUtil.getValue;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class CacheEvictorTest extends DbTest {
+    @Test
+    public void leastRecentlyUsedSearchResult() throws InterruptedException {
+        Repo shared = TestUtil.createRepo(1, "a", "shared", "desc");
+        Repo onlyInBar = TestUtil.createRepo(2, "a", "bar", "desc");
+        insertSearch("foo", 1, shared);
+        insertSearch("bar", 2, shared, onlyInBar);
+        insertSearch("baz", 3, shared);
+        db.repoDao().insertContributors(Collections.singletonList(
+                TestUtil.createContributor(onlyInBar, "c", 1)));
+
+        CacheEvictor evictor = new CacheEvictor(db, mock(AppExecutors.class), 2,
+                Long.MAX_VALUE);
+        // bar is now the least recently shown
+        evictor.onSearchAccessed("foo");
+        evictor.evict();
+
+        assertThat(db.repoDao().findSearchResult("bar"), nullValue());
+        assertThat(db.repoDao().findSearchResult("foo"), notNullValue());
+        assertThat(db.repoDao().findSearchResult("baz"), notNullValue());
+        assertThat(db.repoDao().findSearchResults("bar").size(), is(0));
+        assertThat(getValue(db.repoDao().load("a", "bar")), nullValue());
+        assertThat(getValue(db.repoDao().loadContributors("a", "bar")).size(), is(0));
+        assertThat(getValue(db.repoDao().load("a", "shared")), notNullValue());
+        assertThat(evictor.getEvictedSearchResults(), is(1L));
+        assertThat(evictor.getEvictedRepos(), is(1L));
+        assertThat(evictor.getEvictedContributors(), is(1L));
+    }
+
+    @Test
+    public void rejectedEvictionScheduledAgain() {
+        List<Runnable> submitted = new ArrayList<>();
+        AppExecutors appExecutors = mock(AppExecutors.class);
+        when(appExecutors.diskIO(Priority.BACKGROUND)).thenReturn(command -> {
+            submitted.add(command);
+            ((PriorityExecutor.Rejectable) command).onRejected();
+        });
+        CacheEvictor evictor = new CacheEvictor(db, appExecutors, 10, Long.MAX_VALUE);
+        evictor.evictInBackground();
+        evictor.evictInBackground();
+        assertThat(submitted.size(), is(2));
+    }
+
+    @Test
+    public void fetchedRepoKeptUntilTheFetchExpires() throws InterruptedException {
+        Repo repo = TestUtil.createRepo(1, "a", "b", "desc");
+        db.repoDao().insert(repo);
+        db.fetchedResourceDao().insert(new FetchedResource("repos/a/b", 1000, null, null));
+
+        CacheEvictor evictor = new CacheEvictor(db, mock(AppExecutors.class), 10,
+                Long.MAX_VALUE) {
+            @Override
+            long now() {
+                return 2000;
+            }
+        };
+        evictor.evict();
+        assertThat(getValue(db.repoDao().load("a", "b")), notNullValue());
+
+        evictor = new CacheEvictor(db, mock(AppExecutors.class), 10, Long.MAX_VALUE) {
+            @Override
+            long now() {
+                return 2000 + CacheEvictor.MAX_FETCHED_AGE_MILLIS;
+            }
+        };
+        evictor.evict();
+        assertThat(getValue(db.repoDao().load("a", "b")), nullValue());
+    }
+
+    @Test
+    public void repoWithFetchedDetailsKept() throws InterruptedException {
+        Repo repo = TestUtil.createRepo(1, "a", "b", "desc");
+        db.repoDao().insert(repo);
+        db.fetchedResourceDao().insert(
+                new FetchedResource("repos/a/b/details", 1000, null, null));
+
+        CacheEvictor evictor = new CacheEvictor(db, mock(AppExecutors.class), 10,
+                Long.MAX_VALUE) {
+            @Override
+            long now() {
+                return 2000;
+            }
+        };
+        evictor.evict();
+        assertThat(getValue(db.repoDao().load("a", "b")), notNullValue());
+    }
+
+    @Test
+    public void sizesReported() {
+        CacheEvictor evictor = new CacheEvictor(db, mock(AppExecutors.class), 10,
+                Long.MAX_VALUE);
+        evictor.evict();
+        assertThat(evictor.getDatabaseBytes() > 0, is(true));
+        assertThat(evictor.getUsedBytes() <= evictor.getDatabaseBytes(), is(true));
+    }
+
+    @Test
+    public void evictionEnablesIncrementalVacuum() {
+        CacheEvictor evictor = new CacheEvictor(db, mock(AppExecutors.class), 10,
+                Long.MAX_VALUE);
+        evictor.evict();
+        Cursor cursor = db.query("PRAGMA auto_vacuum", null);
+        try {
+            assertThat(cursor.moveToFirst(), is(true));
+            // incremental
+            assertThat(cursor.getInt(0), is(2));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void insertSearch(String query, long accessedAt, Repo... repos) {
+        db.repoDao().insertRepos(Arrays.asList(repos));
+        int[] ids = new int[repos.length];
+        for (int i = 0; i < repos.length; i++) {
+            ids[i] = repos[i].id;
+        }
+        db.repoDao().insertSearchResultItems(query, 0, ids);
+        RepoSearchResult result = new RepoSearchResult(query, ids.length, ids.length, null);
+        result.accessedAt = accessedAt;
+        db.repoDao().insert(result);
+    }
+}
@@ -28,8 +28,10 @@ abstract public class DbTest {
 
     @Before
     public void initDb() {
-        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getContext(),
-                GithubDb.class).build();
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getContext(), GithubDb.class)
+                .addCallback(RepoSearchIndex.CALLBACK)
+                .addCallback(KeyedInvalidationTracker.CALLBACK)
+                .build();
     }
 
     @After
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Repo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.database.Cursor;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class KeyedInvalidationTrackerTest extends DbTest {
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void writtenKeysAreDrainedByTheirTransaction() {
+        List<Map<String, Set<String>>> dispatched = new ArrayList<>();
+        new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run)) {
+            @Override
+            void dispatch(Map<String, Set<String>> writtenKeys) {
+                dispatched.add(writtenKeys);
+            }
+        };
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.runInTransaction(() -> {
+            db.repoDao().insert(repo);
+            db.repoDao().insertContributors(Collections.singletonList(
+                    TestUtil.createContributor(repo, "c1", 3)));
+            // nested transactions of the DAOs leave the keys to the outermost one
+            assertThat(dispatched.isEmpty(), is(true));
+        });
+        db.userDao().insert(TestUtil.createUser("baz"));
+
+        assertThat(dispatched.size(), is(2));
+        assertThat(dispatched.get(0).size(), is(2));
+        assertThat(dispatched.get(0).get("repo"), is(set("foo/bar", "foo")));
+        assertThat(dispatched.get(0).get("contributor"), is(set("foo/bar")));
+        assertThat(dispatched.get(1).size(), is(1));
+        assertThat(dispatched.get(1).get("user"), is(set("baz")));
+        Cursor cursor = db.query("SELECT COUNT(*) FROM written_key", null);
+        try {
+            assertThat(cursor.moveToFirst(), is(true));
+            assertThat(cursor.getInt(0), is(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void keysOfRolledBackWritesAreNotDispatched() {
+        List<Map<String, Set<String>>> dispatched = new ArrayList<>();
+        new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run)) {
+            @Override
+            void dispatch(Map<String, Set<String>> writtenKeys) {
+                dispatched.add(writtenKeys);
+            }
+        };
+        db.beginTransaction();
+        try {
+            db.userDao().insert(TestUtil.createUser("baz"));
+        } finally {
+            db.endTransaction();
+        }
+        assertThat(dispatched.isEmpty(), is(true));
+    }
+
+    @Test
+    public void onlyQueriesOfWrittenKeysRunAgain() {
+        KeyedInvalidationTracker tracker = new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run));
+        AtomicInteger repoQueries = new AtomicInteger();
+        AtomicInteger ownerQueries = new AtomicInteger();
+        AtomicInteger otherQueries = new AtomicInteger();
+        AtomicInteger detailsQueries = new AtomicInteger();
+        tracker.createLiveData(new String[]{"repo"}, "foo/bar",
+                () -> repoQueries.incrementAndGet()).observeForever(value -> {});
+        tracker.createLiveData(new String[]{"repo"}, "foo",
+                () -> ownerQueries.incrementAndGet()).observeForever(value -> {});
+        tracker.createLiveData(new String[]{"repo"}, "baz/bar",
+                () -> otherQueries.incrementAndGet()).observeForever(value -> {});
+        tracker.createLiveData(new String[]{"repo", "contributor"}, "foo/bar",
+                () -> detailsQueries.incrementAndGet()).observeForever(value -> {});
+
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.repoDao().insert(repo);
+        assertThat(repoQueries.get(), is(2));
+        assertThat(ownerQueries.get(), is(2));
+        assertThat(otherQueries.get(), is(1));
+        assertThat(detailsQueries.get(), is(2));
+        assertThat(tracker.getRequeryCount(), is(3L));
+        assertThat(tracker.getSkippedRequeryCount(), is(1L));
+
+        db.repoDao().insertContributors(Collections.singletonList(
+                TestUtil.createContributor(repo, "c1", 3)));
+        assertThat(repoQueries.get(), is(2));
+        assertThat(detailsQueries.get(), is(3));
+
+        db.userDao().insert(TestUtil.createUser("foo"));
+        assertThat(tracker.getRequeryCount(), is(4L));
+        assertThat(tracker.getSkippedRequeryCount(), is(1L));
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Repo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.paging.DataSource;
+import android.arch.paging.PagedList;
+import android.support.test.runner.AndroidJUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class OwnerRepoDataSourceFactoryTest extends DbTest {
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void invalidatedOnlyByReposOfTheOwner() {
+        KeyedInvalidationTracker tracker = new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run));
+        DataSource<Integer, ?> dataSource =
+                new OwnerRepoDataSourceFactory(db, tracker, "foo").create();
+
+        db.repoDao().insert(TestUtil.createRepo("bar", "r1", "desc"));
+        assertThat(dataSource.isInvalid(), is(false));
+
+        db.repoDao().insert(TestUtil.createRepo("foo", "r1", "desc"));
+        assertThat(dataSource.isInvalid(), is(true));
+    }
+
+    @Test
+    public void replacedDataSourcesStopObserving() {
+        KeyedInvalidationTracker tracker = new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run));
+        OwnerRepoDataSourceFactory factory = new OwnerRepoDataSourceFactory(db, tracker, "foo");
+        DataSource<Integer, ?> first = factory.create();
+        assertThat(tracker.getObserverCount("repo"), is(1));
+        first.invalidate();
+        DataSource<Integer, ?> second = factory.create();
+        assertThat(tracker.getObserverCount("repo"), is(1));
+
+        db.repoDao().insert(TestUtil.createRepo("foo", "r1", "desc"));
+        assertThat(second.isInvalid(), is(true));
+        assertThat(tracker.getObserverCount("repo"), is(0));
+    }
+
+    @Test
+    public void initialLoadPastTheEnd() {
+        KeyedInvalidationTracker tracker = new KeyedInvalidationTracker(db,
+                new AppExecutors(Runnable::run, Runnable::run, Runnable::run, Runnable::run));
+        for (int i = 0; i < 5; i++) {
+            db.repoDao().insert(TestUtil.createRepo(i, "foo", "r" + i, "desc"));
+        }
+        PagedList<Repo> list = new PagedList.Builder<>(
+                new OwnerRepoDataSourceFactory(db, tracker, "foo").create(), 2)
+                .setMainThreadExecutor(Runnable::run)
+                .setBackgroundThreadExecutor(Runnable::run)
+                .setInitialKey(20)
+                .build();
+        assertThat(list.size(), is(5));
+        assertThat(list.get(4), notNullValue());
+    }
+}
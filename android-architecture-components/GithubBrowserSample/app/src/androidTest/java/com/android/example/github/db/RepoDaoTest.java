@@ -19,6 +19,7 @@ package com.android.example.github.db;
 import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -34,6 +35,7 @@ import java.util.List;
 import static com.android.example.github.util.LiveDataTestUtil.getValue;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(AndroidJUnit4.class)
@@ -85,6 +87,25 @@ public class RepoDaoTest extends DbTest {
         assertThat(second.getContributions(), is(3));
     }
 
+    @Test
+    public void findRepoDetails() {
+        assertThat(db.repoDao().findRepoDetails("foo", "bar").repo, nullValue());
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.repoDao().insert(repo);
+        RepoDetails details = db.repoDao().findRepoDetails("foo", "bar");
+        assertThat(details.repo.description, is("desc"));
+        assertThat(details.contributors.size(), is(0));
+
+        db.repoDao().insertContributors(Arrays.asList(TestUtil.createContributor(repo, "c1", 3),
+                TestUtil.createContributor(repo, "c2", 7)));
+        details = db.repoDao().findRepoDetails("foo", "bar");
+        assertThat(details.repo.owner.login, is("foo"));
+        assertThat(details.contributors.size(), is(2));
+        assertThat(details.contributors.get(0).getLogin(), is("c2"));
+        assertThat(details.contributors.get(0).getRepoName(), is("bar"));
+        assertThat(details.contributors.get(1).getLogin(), is("c1"));
+    }
+
     @Test
     public void createIfNotExists_exists() throws InterruptedException {
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
@@ -112,4 +133,64 @@ public class RepoDaoTest extends DbTest {
         data = db.repoDao().loadContributors("foo", "bar");
         assertThat(getValue(data).size(), is(1));
     }
+
+    @Test
+    public void ownerRepositoriesPagedByStars() {
+        db.repoDao().insertRepos(Arrays.asList(createRepo("foo", "r1", 1),
+                createRepo("foo", "r2", 3), createRepo("foo", "r3", 2),
+                createRepo("bar", "r4", 5)));
+        assertThat(db.repoDao().countRepositories("foo"), is(3));
+
+        List<Repo> first = db.repoDao().findRepositories("foo", 0, 2);
+        assertThat(first.size(), is(2));
+        assertThat(first.get(0).name, is("r2"));
+        assertThat(first.get(1).name, is("r3"));
+        List<Repo> second = db.repoDao().findRepositories("foo", 2, 2);
+        assertThat(second.size(), is(1));
+        assertThat(second.get(0).name, is("r1"));
+    }
+
+    @Test
+    public void ownerRepositoriesCounted() {
+        db.repoDao().insertRepos(Arrays.asList(createRepo("foo", "r1", 1),
+                createRepo("foo", "r2", 3), createRepo("foo", "r3", 2),
+                createRepo("bar", "r4", 5)));
+        List<RepoDao.CountedRepoRow> rows = db.repoDao().findCountedRepositories("foo", 1, 2);
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(0).total, is(3));
+        assertThat(rows.get(0).repo.name, is("r3"));
+        assertThat(rows.get(1).repo.name, is("r1"));
+
+        rows = db.repoDao().findCountedRepositories("foo", 3, 2);
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0).total, is(3));
+        assertThat(rows.get(0).repo, nullValue());
+    }
+
+    @Test
+    public void searchResultsInOrder() throws InterruptedException {
+        Repo r1 = TestUtil.createRepo(1, "foo", "r1", "desc");
+        Repo r2 = TestUtil.createRepo(2, "foo", "r2", "desc");
+        Repo r3 = TestUtil.createRepo(3, "foo", "r3", "desc");
+        db.repoDao().insertRepos(Arrays.asList(r1, r2, r3));
+        db.repoDao().insertSearchResultItems("q", 0, new int[]{3, 1});
+        // next page
+        db.repoDao().insertSearchResultItems("q", 2, new int[]{2});
+        db.repoDao().insertSearchResultItems("other", 0, new int[]{1});
+
+        List<Repo> results = getValue(db.repoDao().loadSearchResults("q"));
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).name, is("r3"));
+        assertThat(results.get(1).name, is("r1"));
+        assertThat(results.get(2).name, is("r2"));
+
+        db.repoDao().deleteSearchResultItems("q");
+        assertThat(getValue(db.repoDao().loadSearchResults("q")).size(), is(0));
+        assertThat(getValue(db.repoDao().loadSearchResults("other")).size(), is(1));
+    }
+
+    private static Repo createRepo(String owner, String name, int stars) {
+        return new Repo(Repo.UNKNOWN_ID, name, owner + "/" + name, "desc",
+                new Repo.Owner(owner, null), stars);
+    }
 }
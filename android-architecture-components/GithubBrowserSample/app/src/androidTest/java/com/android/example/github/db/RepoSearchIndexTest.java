@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Repo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class RepoSearchIndexTest extends DbTest {
+    private RepoSearchIndex index;
+
+    @Before
+    public void init() {
+        index = new RepoSearchIndex(db);
+    }
+
+    @Test
+    public void namesFirst() {
+        Repo inDescription = TestUtil.createRepo(1, "a", "b", "a room wrapper");
+        Repo inName = TestUtil.createRepo(2, "c", "roomdemo", "demo");
+        Repo exactName = TestUtil.createRepo(3, "d", "room", "orm");
+        Repo other = TestUtil.createRepo(4, "e", "f", "paging");
+        db.repoDao().insertRepos(Arrays.asList(inDescription, inName, exactName, other));
+
+        assertThat(ids(index.search("room", 10)), is(Arrays.asList(3, 2, 1)));
+        assertThat(ids(index.search("room", 1)), is(Collections.singletonList(3)));
+    }
+
+    @Test
+    public void everyWord() {
+        Repo both = TestUtil.createRepo(1, "a", "room", "paging sample");
+        Repo one = TestUtil.createRepo(2, "b", "room", "sample");
+        db.repoDao().insertRepos(Arrays.asList(both, one));
+
+        assertThat(ids(index.search("Room pag", 10)), is(Collections.singletonList(1)));
+        assertThat(index.search("room language:java", 10).size(), is(2));
+        assertThat(index.search("language:java", 10).size(), is(0));
+    }
+
+    @Test
+    public void replacedRepo() {
+        db.repoDao().insert(TestUtil.createRepo(1, "a", "b", "room"));
+        Repo replacement = TestUtil.createRepo(1, "a", "b", "paging");
+        db.repoDao().insert(replacement);
+
+        assertThat(index.search("room", 10).size(), is(0));
+        List<Repo> results = index.search("paging", 10);
+        assertThat(ids(results), is(Collections.singletonList(1)));
+        assertThat(results.get(0).description, is("paging"));
+    }
+
+    private static List<Integer> ids(List<Repo> repos) {
+        List<Integer> ids = new ArrayList<>();
+        for (Repo repo : repos) {
+            ids.add(repo.id);
+        }
+        return ids;
+    }
+}
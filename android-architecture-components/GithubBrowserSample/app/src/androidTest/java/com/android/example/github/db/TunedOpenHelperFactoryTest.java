@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Repo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.Room;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.Collections;
+
+import static com.android.example.github.util.LiveDataTestUtil.getValue;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class TunedOpenHelperFactoryTest {
+    private static final String NAME = "tuned-test.db";
+
+    private Context context;
+
+    private GithubDb db;
+
+    @Before
+    public void init() {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(NAME);
+        db = Room.databaseBuilder(context, GithubDb.class, NAME)
+                .openHelperFactory(new TunedOpenHelperFactory(0))
+                .build();
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+        context.deleteDatabase(NAME);
+    }
+
+    @Test
+    public void tuned() {
+        SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+        assertThat(database.isWriteAheadLoggingEnabled(), is(true));
+        assertThat(database.getPageSize(), is(4096L));
+        try (Cursor cursor = database.query("PRAGMA synchronous")) {
+            cursor.moveToFirst();
+            // NORMAL
+            assertThat(cursor.getInt(0), is(1));
+        }
+    }
+
+    @Test
+    public void timedQueriesStillWork() throws InterruptedException {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.repoDao().insertRepos(Collections.singletonList(repo));
+        assertThat(getValue(db.repoDao().load("foo", "bar")).description, is("desc"));
+    }
+}
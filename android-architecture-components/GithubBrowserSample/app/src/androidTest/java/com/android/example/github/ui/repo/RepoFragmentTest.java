@@ -39,9 +39,11 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
 
+import com.android.example.github.AppExecutors;
 import com.android.example.github.R;
 import com.android.example.github.binding.FragmentBindingAdapters;
 import com.android.example.github.testing.SingleFragmentActivity;
+import com.android.example.github.ui.common.DiffStats;
 import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.EspressoTestUtil;
 import com.android.example.github.util.RecyclerViewMatcher;
@@ -90,6 +92,9 @@ public class RepoFragmentTest {
 
         repoFragment.viewModelFactory = ViewModelUtil.createFor(viewModel);
         repoFragment.dataBindingComponent = () -> fragmentBindingAdapters;
+        repoFragment.appExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run,
+                Runnable::run);
+        repoFragment.diffStats = new DiffStats();
         repoFragment.navigationController = navigationController;
         activityRule.getActivity().setFragment(repoFragment);
     }
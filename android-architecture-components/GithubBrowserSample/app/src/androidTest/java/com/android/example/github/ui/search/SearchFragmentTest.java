@@ -35,6 +35,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.arch.lifecycle.MutableLiveData;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
 import android.support.test.espresso.contrib.RecyclerViewActions;
 import android.support.test.espresso.matcher.ViewMatchers;
@@ -47,6 +48,7 @@ import com.android.example.github.binding.FragmentBindingAdapters;
 import com.android.example.github.testing.SingleFragmentActivity;
 import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.EspressoTestUtil;
+import com.android.example.github.util.ListDataSource;
 import com.android.example.github.util.RecyclerViewMatcher;
 import com.android.example.github.util.TaskExecutorWithIdlingResourceRule;
 import com.android.example.github.util.TestUtil;
@@ -77,6 +79,7 @@ public class SearchFragmentTest {
     private SearchViewModel viewModel;
 
     private MutableLiveData<Resource<List<Repo>>> results = new MutableLiveData<>();
+    private MutableLiveData<PagedList<Repo>> pagedResults = new MutableLiveData<>();
     private MutableLiveData<SearchViewModel.LoadMoreState> loadMoreStatus = new MutableLiveData<>();
 
     @Before
@@ -86,6 +89,7 @@ public class SearchFragmentTest {
         viewModel = mock(SearchViewModel.class);
         doReturn(loadMoreStatus).when(viewModel).getLoadMoreStatus();
         when(viewModel.getResults()).thenReturn(results);
+        when(viewModel.getPagedResults()).thenReturn(pagedResults);
 
         fragmentBindingAdapters = mock(FragmentBindingAdapters.class);
         navigationController = mock(NavigationController.class);
@@ -108,7 +112,7 @@ public class SearchFragmentTest {
     @Test
     public void loadResults() {
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.success(Arrays.asList(repo)));
+        setResults(Resource.success(Arrays.asList(repo)));
         onView(listMatcher().atPosition(0)).check(matches(hasDescendant(withText("foo/bar"))));
         onView(withId(R.id.progress_bar)).check(matches(not(isDisplayed())));
     }
@@ -116,7 +120,7 @@ public class SearchFragmentTest {
     @Test
     public void dataWithLoading() {
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.loading(Arrays.asList(repo)));
+        setResults(Resource.loading(Arrays.asList(repo)));
         onView(listMatcher().atPosition(0)).check(matches(hasDescendant(withText("foo/bar"))));
         onView(withId(R.id.progress_bar)).check(matches(not(isDisplayed())));
     }
@@ -130,7 +134,7 @@ public class SearchFragmentTest {
     @Test
     public void loadMore() throws Throwable {
         List<Repo> repos = TestUtil.createRepos(50, "foo", "barr", "desc");
-        results.postValue(Resource.success(repos));
+        setResults(Resource.success(repos));
         onView(withId(R.id.repo_list)).perform(RecyclerViewActions.scrollToPosition(49));
         onView(listMatcher().atPosition(49)).check(matches(isDisplayed()));
         verify(viewModel).loadNextPage();
@@ -140,7 +144,7 @@ public class SearchFragmentTest {
     public void navigateToRepo() throws Throwable {
         doNothing().when(viewModel).loadNextPage();
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.success(Arrays.asList(repo)));
+        setResults(Resource.success(Arrays.asList(repo)));
         onView(withText("desc")).perform(click());
         verify(navigationController).navigateToRepo("foo", "bar");
     }
@@ -160,6 +164,12 @@ public class SearchFragmentTest {
                 withEffectiveVisibility(ViewMatchers.Visibility.VISIBLE)));
     }
 
+    private void setResults(Resource<List<Repo>> resource) {
+        results.postValue(resource);
+        pagedResults.postValue(resource.data == null ? null
+                : ListDataSource.toPagedList(resource.data));
+    }
+
     @NonNull
     private RecyclerViewMatcher listMatcher() {
         return new RecyclerViewMatcher(R.id.repo_list);
@@ -33,6 +33,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.arch.lifecycle.MutableLiveData;
+import android.arch.paging.PagedList;
+import android.arch.paging.PositionalDataSource;
 import android.support.annotation.NonNull;
 import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
@@ -67,7 +69,7 @@ public class UserFragmentTest {
     private NavigationController navigationController;
     private FragmentBindingAdapters fragmentBindingAdapters;
     private MutableLiveData<Resource<User>> userData = new MutableLiveData<>();
-    private MutableLiveData<Resource<List<Repo>>> repoListData = new MutableLiveData<>();
+    private MutableLiveData<PagedList<Repo>> repoListData = new MutableLiveData<>();
 
     @Before
     public void init() throws Throwable {
@@ -75,7 +77,8 @@ public class UserFragmentTest {
         UserFragment fragment = UserFragment.create("foo");
         viewModel = mock(UserViewModel.class);
         when(viewModel.getUser()).thenReturn(userData);
-        when(viewModel.getRepositories()).thenReturn(repoListData);
+        when(viewModel.getRepositoriesRefresh()).thenReturn(new MutableLiveData<>());
+        when(viewModel.getPagedRepositories()).thenReturn(repoListData);
         doNothing().when(viewModel).setLogin(anyString());
         navigationController = mock(NavigationController.class);
         fragmentBindingAdapters = mock(FragmentBindingAdapters.class);
@@ -186,7 +189,24 @@ public class UserFragmentTest {
         for (int i = 0; i < count; i++) {
             repos.add(TestUtil.createRepo("foo", "name " + i, "desc" + i));
         }
-        repoListData.postValue(Resource.success(repos));
+        PositionalDataSource<Repo> dataSource = new PositionalDataSource<Repo>() {
+            @Override
+            public void loadInitial(@NonNull LoadInitialParams params,
+                    @NonNull LoadInitialCallback<Repo> callback) {
+                callback.onResult(repos, 0, repos.size());
+            }
+
+            @Override
+            public void loadRange(@NonNull LoadRangeParams params,
+                    @NonNull LoadRangeCallback<Repo> callback) {
+                int end = Math.min(params.startPosition + params.loadSize, repos.size());
+                callback.onResult(repos.subList(params.startPosition, end));
+            }
+        };
+        repoListData.postValue(new PagedList.Builder<>(dataSource, 10)
+                .setMainThreadExecutor(Runnable::run)
+                .setBackgroundThreadExecutor(Runnable::run)
+                .build());
         return repos;
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import okhttp3.Headers;
+import retrofit2.Response;
+
+/**
+ * Cost of wrapping a search response, which parses its link header and next page.
+ */
+@State(Scope.Benchmark)
+public class ApiResponseBenchmark {
+    private Response<String> withLinks;
+
+    private Response<String> withoutLinks;
+
+    @Setup
+    public void setup() {
+        withLinks = Response.success("foo", Headers.of("link",
+                "<https://api.github.com/search/repositories?q=foo&page=2>; rel=\"next\", "
+                        + "<https://api.github.com/search/repositories?q=foo&page=34>; "
+                        + "rel=\"last\", "
+                        + "<https://api.github.com/search/repositories?q=foo&page=1>; "
+                        + "rel=\"first\""));
+        withoutLinks = Response.success("foo");
+    }
+
+    @Benchmark
+    public Integer linkHeader() {
+        return new ApiResponse<>(withLinks).getNextPage();
+    }
+
+    @Benchmark
+    public Integer noLinkHeader() {
+        return new ApiResponse<>(withoutLinks).getNextPage();
+    }
+}
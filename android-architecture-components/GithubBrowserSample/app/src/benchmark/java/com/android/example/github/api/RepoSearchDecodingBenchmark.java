@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import com.android.example.github.util.RepoSearchConverterFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Decoding search pages served by a MockWebServer, made of copies of the search.json fixture:
+ * with plain Gson and with the streaming converter. Run with the GC profiler to compare
+ * allocations.
+ */
+@State(Scope.Benchmark)
+public class RepoSearchDecodingBenchmark {
+    @Param({"1", "40"})
+    public int scale;
+
+    private MockWebServer mockWebServer;
+
+    private String body;
+
+    private GithubService gson;
+
+    private GithubService streaming;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonObject search = readFixture();
+        JsonArray items = search.getAsJsonArray("items");
+        JsonArray scaled = new JsonArray();
+        int id = 0;
+        for (int i = 0; i < scale; i++) {
+            for (JsonElement item : items) {
+                // shallow copy, only the top level id changes
+                JsonObject copy = new JsonObject();
+                for (Map.Entry<String, JsonElement> entry : item.getAsJsonObject().entrySet()) {
+                    copy.add(entry.getKey(), entry.getValue());
+                }
+                copy.addProperty("id", id++);
+                scaled.add(copy);
+            }
+        }
+        search.add("items", scaled);
+        body = search.toString();
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        gson = createService(null);
+        // the scaled pages are larger than the pages GitHub returns
+        streaming = createService(new RepoSearchConverterFactory(new Gson(), scaled.size()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Benchmark
+    public int[] decodeGson() throws IOException {
+        return decode(gson);
+    }
+
+    @Benchmark
+    public int[] decodeStreaming() throws IOException {
+        return decode(streaming);
+    }
+
+    private int[] decode(GithubService service) throws IOException {
+        mockWebServer.enqueue(new MockResponse().setBody(body));
+        //noinspection ConstantConditions
+        return service.searchRepos("foo", 1).execute().body().getRepoIds();
+    }
+
+    private GithubService createService(RepoSearchConverterFactory converterFactory) {
+        Gson gson = new Gson();
+        Retrofit.Builder builder = new Retrofit.Builder().baseUrl(mockWebServer.url("/"));
+        if (converterFactory != null) {
+            builder.addConverterFactory(converterFactory);
+        }
+        return builder.addConverterFactory(GsonConverterFactory.create(gson))
+                .build()
+                .create(GithubService.class);
+    }
+
+    private JsonObject readFixture() throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader()
+                .getResourceAsStream("api-response/search.json")) {
+            return new Gson().fromJson(
+                    new InputStreamReader(inputStream, StandardCharsets.UTF_8), JsonObject.class);
+        }
+    }
+}
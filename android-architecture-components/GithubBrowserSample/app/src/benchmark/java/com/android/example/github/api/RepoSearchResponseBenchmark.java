@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import com.google.gson.Gson;
+
+import com.android.example.github.util.RepoSearchConverterFactory;
+import com.android.example.github.vo.Repo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decoding a search page, with the streaming converter and with plain Gson, and collecting the
+ * ids of its repos.
+ */
+@State(Scope.Benchmark)
+public class RepoSearchResponseBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({"30", "1000", "10000", "100000"})
+    public int size;
+
+    private Gson gson;
+
+    private Converter<ResponseBody, ?> streamingConverter;
+
+    private String json;
+
+    private List<Repo> items;
+
+    @Setup
+    public void setup() {
+        gson = new Gson();
+        streamingConverter = new RepoSearchConverterFactory(gson, size)
+                .responseBodyConverter(RepoSearchResponse.class, new Annotation[0], null);
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Repo(i, "name" + i, "owner" + i + "/name" + i, "description " + i,
+                    new Repo.Owner("owner" + i, "https://api.github.com/users/owner" + i), i));
+        }
+        RepoSearchResponse response = new RepoSearchResponse();
+        response.setTotal(size);
+        response.setItems(items);
+        json = gson.toJson(response);
+    }
+
+    @Benchmark
+    public int[] getRepoIds() {
+        RepoSearchResponse response = new RepoSearchResponse();
+        response.setItems(items);
+        return response.getRepoIds();
+    }
+
+    @Benchmark
+    public int[] decodeStreaming() throws IOException {
+        RepoSearchResponse response = (RepoSearchResponse) streamingConverter.convert(
+                ResponseBody.create(JSON, json));
+        return response.getRepoIds();
+    }
+
+    @Benchmark
+    public int[] decodeGson() {
+        RepoSearchResponse response = gson.fromJson(json, RepoSearchResponse.class);
+        return response.getRepoIds();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.benchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the JMH benchmarks of the data layer. They are skipped unless the unit tests are run with
+ * the benchmark property, e.g. {@code ./gradlew testDebugUnitTest -Pbenchmark
+ * --tests '*BenchmarkSuite'}. The optional {@code benchmark.include} property narrows them down
+ * with a regular expression. Allocation rates are reported by JMH's GC profiler.
+ * <p>
+ * The benchmarks run inside the test JVM because Gradle's test worker classpath cannot be handed
+ * to a forked JVM; compare numbers taken on the same machine. The suite runs with Robolectric so
+ * that the database benchmarks can open an in-memory Room database.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class BenchmarkSuite {
+    @Test
+    public void run() throws RunnerException {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include",
+                        "com\\.android\\.example\\.github\\..*Benchmark"))
+                .forks(0)
+                .mode(Mode.AverageTime)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.util.LiveDataTestUtil;
+import com.android.example.github.vo.Repo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+import android.arch.core.executor.ArchTaskExecutor;
+import android.arch.core.executor.TaskExecutor;
+import android.arch.persistence.room.Room;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading a search result through the {@link RepoDao#loadSearchResults(String)} join, from an
+ * in-memory database that also holds the results of other queries. Requires the Robolectric
+ * environment of {@link com.android.example.github.benchmark.BenchmarkSuite}.
+ * <p>
+ * The other queries have {@code OTHER_QUERY_SIZE} results each, so that the setup of the largest
+ * result does not insert ten times as many rows.
+ */
+@State(Scope.Benchmark)
+public class SearchResultsBenchmark {
+    private static final int OTHER_QUERIES = 10;
+
+    private static final int OTHER_QUERY_SIZE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private GithubDb db;
+
+    @Setup
+    public void setup() {
+        // LiveData queries run synchronously on the benchmark thread
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.application, GithubDb.class)
+                .allowMainThreadQueries()
+                .build();
+        int id = 0;
+        for (int query = 0; query <= OTHER_QUERIES; query++) {
+            int count = query == 0 ? size : OTHER_QUERY_SIZE;
+            List<Repo> repos = new ArrayList<>(count);
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                repos.add(new Repo(id, "name" + id, "owner" + id + "/name" + id,
+                        "description " + id,
+                        new Repo.Owner("owner" + id, "https://api.github.com/users/owner" + id),
+                        id));
+                ids[i] = id++;
+            }
+            db.repoDao().insertRepos(repos);
+            db.repoDao().insertSearchResultItems("query" + query, 0, ids);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.close();
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Benchmark
+    public List<Repo> loadSearchResults() throws InterruptedException {
+        return LiveDataTestUtil.getValue(db.repoDao().loadSearchResults("query0"));
+    }
+}
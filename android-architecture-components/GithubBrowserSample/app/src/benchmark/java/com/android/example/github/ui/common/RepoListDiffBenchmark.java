@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import com.android.example.github.vo.Repo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diffs of the repo list with {@link RepoListAdapter}'s callbacks, for the updates the search
+ * screen sees: a page appended at the end and a single repo changed in place.
+ */
+@State(Scope.Benchmark)
+public class RepoListDiffBenchmark {
+    private static final int PAGE_SIZE = 30;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private RepoListAdapter adapter;
+
+    private List<Repo> current;
+
+    private List<Repo> appended;
+
+    private List<Repo> changed;
+
+    @Setup
+    public void setup() {
+        adapter = new RepoListAdapter(null, new DiffStats(), null, true, null);
+        current = createRepos(0, size);
+        appended = new ArrayList<>(current);
+        appended.addAll(createRepos(size, PAGE_SIZE));
+        changed = new ArrayList<>(current);
+        Repo middle = current.get(size / 2);
+        changed.set(size / 2, new Repo(middle.id, middle.name, middle.fullName,
+                middle.description, middle.owner, middle.stars + 1));
+    }
+
+    @Benchmark
+    public DiffUtil.DiffResult appendPage() {
+        return DiffUtil.calculateDiff(new Callback(current, appended));
+    }
+
+    @Benchmark
+    public DiffUtil.DiffResult changeOne() {
+        return DiffUtil.calculateDiff(new Callback(current, changed));
+    }
+
+    private static List<Repo> createRepos(int start, int count) {
+        List<Repo> repos = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            repos.add(new Repo(i, "name" + i, "owner" + i + "/name" + i, "description " + i,
+                    new Repo.Owner("owner" + i, null), i));
+        }
+        return repos;
+    }
+
+    private class Callback extends DiffUtil.Callback {
+        private final List<Repo> oldItems;
+        private final List<Repo> newItems;
+
+        Callback(List<Repo> oldItems, List<Repo> newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return adapter.areItemsTheSame(oldItems.get(oldItemPosition),
+                    newItems.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return adapter.areContentsTheSame(oldItems.get(oldItemPosition),
+                    newItems.get(newItemPosition));
+        }
+    }
+}
@@ -16,12 +16,16 @@
 
 package com.android.example.github;
 
+import com.android.example.github.PriorityExecutor.Priority;
+
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -31,40 +35,144 @@ import javax.inject.Singleton;
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
  * webservice requests).
+ * <p>
+ * Disk and network pools run tasks by {@link Priority} and have bounded queues, see
+ * {@link PriorityExecutor}. Tasks submitted through {@link #diskIO()} and {@link #networkIO()} are
+ * {@link Priority#USER_VISIBLE}.
  */
 @Singleton
 public class AppExecutors {
+    private static final int DISK_IO_THREADS = 1;
+
+    private static final int DISK_READ_THREADS = 2;
+
+    private static final int NETWORK_IO_THREADS = 3;
+
+    private static final int QUEUE_CAPACITY = 64;
 
     private final Executor diskIO;
 
+    private final Executor diskRead;
+
     private final Executor networkIO;
 
+    private final Executor computation;
+
     private final Executor mainThread;
 
-    public AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
+    // only waits for delays, tasks are handed over to the other executors
+    private ScheduledExecutorService timer;
+
+    /**
+     * Database reads run on the disk executor.
+     */
+    public AppExecutors(Executor diskIO, Executor networkIO, Executor computation,
+            Executor mainThread) {
+        this(diskIO, diskIO, networkIO, computation, mainThread);
+    }
+
+    public AppExecutors(Executor diskIO, Executor diskRead, Executor networkIO,
+            Executor computation, Executor mainThread) {
         this.diskIO = diskIO;
+        this.diskRead = diskRead;
         this.networkIO = networkIO;
+        this.computation = computation;
         this.mainThread = mainThread;
     }
 
+    public AppExecutors(int diskIOThreads, int diskReadThreads, int networkIOThreads,
+            int queueCapacity) {
+        this(new PriorityExecutor("disk-io", diskIOThreads, queueCapacity),
+                new PriorityExecutor("disk-read", diskReadThreads, queueCapacity),
+                new PriorityExecutor("network-io", networkIOThreads, queueCapacity),
+                Executors.newSingleThreadExecutor(), new MainThreadExecutor());
+    }
+
     @Inject
     public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
-                new MainThreadExecutor());
+        this(DISK_IO_THREADS, DISK_READ_THREADS, NETWORK_IO_THREADS, QUEUE_CAPACITY);
     }
 
     public Executor diskIO() {
         return diskIO;
     }
 
+    /**
+     * Database queries that should not wait behind the writes and other tasks of
+     * {@link #diskIO()}. With write-ahead logging they also run on their own connections.
+     */
+    public Executor diskRead() {
+        return diskRead;
+    }
+
     public Executor networkIO() {
         return networkIO;
     }
 
+    /**
+     * Returns an executor that submits disk tasks with the given priority. Tasks that are not
+     * {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor diskIO(Priority priority) {
+        return withPriority(diskIO, priority);
+    }
+
+    /**
+     * Returns an executor that submits network tasks with the given priority. Tasks that are not
+     * {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor networkIO(Priority priority) {
+        return withPriority(networkIO, priority);
+    }
+
+    /**
+     * CPU bound work that should not run on the main thread, e.g. list diffs.
+     */
+    public Executor computation() {
+        return computation;
+    }
+
     public Executor mainThread() {
         return mainThread;
     }
 
+    /**
+     * Submits the command to the executor after the given delay. No thread of the executor is
+     * held while waiting.
+     */
+    public void schedule(Executor executor, Runnable command, long delayMillis) {
+        if (delayMillis <= 0) {
+            executor.execute(command);
+            return;
+        }
+        getTimer().schedule(() -> executor.execute(command), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "app-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    @Override
+    public String toString() {
+        return "AppExecutors{diskIO=" + diskIO + ", diskRead=" + diskRead
+                + ", networkIO=" + networkIO + '}';
+    }
+
+    private static Executor withPriority(Executor executor, Priority priority) {
+        // executors given by tests run everything as is
+        if (executor instanceof PriorityExecutor) {
+            return ((PriorityExecutor) executor).withPriority(priority);
+        }
+        return executor;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
         @Override
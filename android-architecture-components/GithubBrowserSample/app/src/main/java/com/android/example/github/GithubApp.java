@@ -16,15 +16,28 @@
 
 package com.android.example.github;
 
+import com.android.example.github.api.ApiQuota;
+import com.android.example.github.api.HttpCacheStats;
+import com.android.example.github.db.CacheEvictor;
+import com.android.example.github.db.GithubDbCache;
+import com.android.example.github.db.KeyedInvalidationTracker;
 import com.android.example.github.di.AppInjector;
+import com.android.example.github.repository.StageTimings;
+import com.android.example.github.ui.common.DiffStats;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
 
 import android.app.Activity;
 import android.app.Application;
 
+import java.io.InputStream;
+
 import javax.inject.Inject;
 
 import dagger.android.DispatchingAndroidInjector;
 import dagger.android.HasActivityInjector;
+import okhttp3.OkHttpClient;
 import timber.log.Timber;
 
 
@@ -33,6 +46,33 @@ public class GithubApp extends Application implements HasActivityInjector {
     @Inject
     DispatchingAndroidInjector<Activity> dispatchingAndroidInjector;
 
+    @Inject
+    OkHttpClient okHttpClient;
+
+    @Inject
+    HttpCacheStats httpCacheStats;
+
+    @Inject
+    ApiQuota apiQuota;
+
+    @Inject
+    AppExecutors appExecutors;
+
+    @Inject
+    GithubDbCache dbCache;
+
+    @Inject
+    CacheEvictor cacheEvictor;
+
+    @Inject
+    StageTimings stageTimings;
+
+    @Inject
+    KeyedInvalidationTracker invalidationTracker;
+
+    @Inject
+    DiffStats diffStats;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -40,6 +80,25 @@ public class GithubApp extends Application implements HasActivityInjector {
             Timber.plant(new Timber.DebugTree());
         }
         AppInjector.init(this);
+        // load images with the same client (and connection pool) as the API
+        Glide.get(this).register(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(okHttpClient));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            // nothing is shown, a good time to shrink the database
+            cacheEvictor.evictInBackground();
+            Timber.d("%s", httpCacheStats);
+            Timber.d("%s", apiQuota);
+            Timber.d("%s", appExecutors);
+            Timber.d("%s", dbCache);
+            Timber.d("%s", stageTimings);
+            Timber.d("%s", invalidationTracker);
+            Timber.d("%s", diffStats);
+        }
     }
 
     @Override
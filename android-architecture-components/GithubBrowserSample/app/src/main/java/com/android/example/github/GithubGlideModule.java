@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.GlideModule;
+
+import android.content.Context;
+
+/**
+ * Sizes Glide's caches for the app's images, which are all small avatars.
+ * <p>
+ * Decoded bitmaps are kept in a bounded memory cache and a bitmap pool so that scrolling a list
+ * reuses bitmaps instead of allocating new ones. Images are stored on disk downsampled to the
+ * size they are displayed at (see {@code FragmentBindingAdapters}), so a cache hit does not decode
+ * a full size image again.
+ */
+public class GithubGlideModule implements GlideModule {
+    // a screen shows a few dozen 64dp avatars, more than this would only hold scrolled off ones
+    private static final int MAX_MEMORY_CACHE_BYTES = 8 * 1024 * 1024;
+
+    private static final int DISK_CACHE_BYTES = 32 * 1024 * 1024;
+
+    private static final String DISK_CACHE_NAME = "avatars";
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator(context);
+        builder.setMemoryCache(new LruResourceCache(
+                Math.min(calculator.getMemoryCacheSize(), MAX_MEMORY_CACHE_BYTES)));
+        builder.setBitmapPool(new LruBitmapPool(
+                Math.min(calculator.getBitmapPoolSize(), MAX_MEMORY_CACHE_BYTES)));
+        builder.setDiskCache(
+                new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, DISK_CACHE_BYTES));
+    }
+
+    @Override
+    public void registerComponents(Context context, Glide glide) {
+        // GithubApp registers the OkHttp loader once it has been injected
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tracks GitHub's rate limits from the responses it sends.
+ * <p>
+ * The search API has its own limit, separate from the one of the other endpoints, so each one has
+ * its own {@link TokenBucket}. This is installed as a network interceptor: responses served from
+ * the HTTP cache do not use the quota.
+ */
+@Singleton
+public class ApiQuota implements Interceptor {
+    private final TokenBucket core = new TokenBucket("core");
+
+    private final TokenBucket search = new TokenBucket("search");
+
+    @Inject
+    public ApiQuota() {
+    }
+
+    /**
+     * The quota of all endpoints but search.
+     */
+    public TokenBucket core() {
+        return core;
+    }
+
+    public TokenBucket search() {
+        return search;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TokenBucket bucket = request.url().encodedPath().startsWith("/search/") ? search : core;
+        bucket.consume();
+        Response response = chain.proceed(request);
+        bucket.update(RateLimit.fromHeaders(response.headers()));
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiQuota{" + core + ", " + search + '}';
+    }
+}
@@ -38,6 +38,15 @@ public class ApiResponse<T> {
             .compile("<([^>]*)>[\\s]*;[\\s]*rel=\"([a-zA-Z0-9]+)\"");
     private static final Pattern PAGE_PATTERN = Pattern.compile("\\bpage=(\\d+)");
     private static final String NEXT_LINK = "next";
+    private static final int NOT_MODIFIED = 304;
+    /**
+     * The code of a call that failed with an {@link IOException}, e.g. while offline.
+     */
+    public static final int NETWORK_FAILURE = -1;
+    /**
+     * The code of a call that failed for another reason, e.g. a body that could not be parsed.
+     */
+    public static final int CALL_FAILURE = -2;
     public final int code;
     @Nullable
     public final T body;
@@ -45,12 +54,28 @@ public class ApiResponse<T> {
     public final String errorMessage;
     @NonNull
     public final Map<String, String> links;
+    /**
+     * Validators that can be sent back in conditional requests to avoid re-downloading an
+     * unchanged resource.
+     */
+    @Nullable
+    public final String etag;
+    @Nullable
+    public final String lastModified;
+    /**
+     * The quota left after this request, {@code null} if the response did not come from GitHub.
+     */
+    @Nullable
+    public final RateLimit rateLimit;
 
     public ApiResponse(Throwable error) {
-        code = 500;
+        code = error instanceof IOException ? NETWORK_FAILURE : CALL_FAILURE;
         body = null;
         errorMessage = error.getMessage();
         links = Collections.emptyMap();
+        etag = null;
+        lastModified = null;
+        rateLimit = null;
     }
 
     public ApiResponse(Response<T> response) {
@@ -73,6 +98,9 @@ public class ApiResponse<T> {
             errorMessage = message;
             body = null;
         }
+        etag = response.headers().get("ETag");
+        lastModified = response.headers().get("Last-Modified");
+        rateLimit = RateLimit.fromHeaders(response.headers());
         String linkHeader = response.headers().get("link");
         if (linkHeader == null) {
             links = Collections.emptyMap();
@@ -89,10 +117,33 @@ public class ApiResponse<T> {
         }
     }
 
+    /**
+     * Creates a response with the status, error and rate limit of another response but a different
+     * body, e.g. the combination of the bodies of several responses. Links and validators only
+     * describe the original body so they are not copied.
+     */
+    public ApiResponse(@NonNull ApiResponse<?> response, @Nullable T body) {
+        code = response.code;
+        this.body = body;
+        errorMessage = response.errorMessage;
+        links = Collections.emptyMap();
+        etag = null;
+        lastModified = null;
+        rateLimit = response.rateLimit;
+    }
+
     public boolean isSuccessful() {
         return code >= 200 && code < 300;
     }
 
+    /**
+     * @return True if this is the response to a conditional request and the resource did not
+     * change, in which case there is no body and the cached copy can be reused.
+     */
+    public boolean isNotModified() {
+        return code == NOT_MODIFIED;
+    }
+
     public Integer getNextPage() {
         String next = links.get(NEXT_LINK);
         if (next == null) {
@@ -23,27 +23,36 @@ import com.android.example.github.vo.User;
 import android.arch.lifecycle.LiveData;
 
 import java.util.List;
+import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.HeaderMap;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
 /**
  * REST API access points
+ * <p>
+ * Resources that are periodically refreshed accept conditional request headers (e.g.
+ * {@code If-None-Match}), pass an empty map for an unconditional request.
  */
 public interface GithubService {
     @GET("users/{login}")
-    LiveData<ApiResponse<User>> getUser(@Path("login") String login);
+    LiveData<ApiResponse<User>> getUser(@Path("login") String login,
+            @HeaderMap Map<String, String> conditionalHeaders);
 
     @GET("users/{login}/repos")
-    LiveData<ApiResponse<List<Repo>>> getRepos(@Path("login") String login);
+    LiveData<ApiResponse<List<Repo>>> getRepos(@Path("login") String login,
+            @HeaderMap Map<String, String> conditionalHeaders);
 
     @GET("repos/{owner}/{name}")
-    LiveData<ApiResponse<Repo>> getRepo(@Path("owner") String owner, @Path("name") String name);
+    LiveData<ApiResponse<Repo>> getRepo(@Path("owner") String owner, @Path("name") String name,
+            @HeaderMap Map<String, String> conditionalHeaders);
 
     @GET("repos/{owner}/{name}/contributors")
-    LiveData<ApiResponse<List<Contributor>>> getContributors(@Path("owner") String owner, @Path("name") String name);
+    LiveData<ApiResponse<List<Contributor>>> getContributors(@Path("owner") String owner,
+            @Path("name") String name, @HeaderMap Map<String, String> conditionalHeaders);
 
     @GET("search/repositories")
     LiveData<ApiResponse<RepoSearchResponse>> searchRepos(@Query("q") String query);
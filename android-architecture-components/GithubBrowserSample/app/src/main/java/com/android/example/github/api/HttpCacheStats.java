@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Cache;
+
+/**
+ * Hit and miss counters of the shared HTTP response cache since the app started.
+ * <p>
+ * A conditional request answered with {@code 304 Not Modified} counts as a hit even though it
+ * went to the network, so {@link #networkCount()} can be larger than {@link #missCount()}.
+ */
+@Singleton
+public class HttpCacheStats {
+    private final Cache cache;
+
+    @Inject
+    public HttpCacheStats(Cache cache) {
+        this.cache = cache;
+    }
+
+    public int requestCount() {
+        return cache.requestCount();
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.requestCount() - cache.hitCount();
+    }
+
+    public int networkCount() {
+        return cache.networkCount();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{" +
+                "requests=" + requestCount() +
+                ", hits=" + hitCount() +
+                ", misses=" + missCount() +
+                ", network=" + networkCount() +
+                '}';
+    }
+}
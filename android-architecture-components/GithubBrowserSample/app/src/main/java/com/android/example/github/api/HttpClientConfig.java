@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tuning of the OkHttp client that is shared by the API and image loading.
+ */
+public class HttpClientConfig {
+    public final long cacheSizeBytes;
+    public final int maxIdleConnections;
+    public final long keepAliveMillis;
+    public final long connectTimeoutMillis;
+    public final long readTimeoutMillis;
+    public final long writeTimeoutMillis;
+
+    public HttpClientConfig(long cacheSizeBytes, int maxIdleConnections, long keepAliveMillis,
+            long connectTimeoutMillis, long readTimeoutMillis, long writeTimeoutMillis) {
+        this.cacheSizeBytes = cacheSizeBytes;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveMillis = keepAliveMillis;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    public static HttpClientConfig defaults() {
+        return new HttpClientConfig(
+                20 * 1024 * 1024,
+                5,
+                TimeUnit.MINUTES.toMillis(5),
+                TimeUnit.SECONDS.toMillis(15),
+                TimeUnit.SECONDS.toMillis(30),
+                // requests are small GETs, only a stalled connection takes long to write them
+                TimeUnit.SECONDS.toMillis(15));
+    }
+}
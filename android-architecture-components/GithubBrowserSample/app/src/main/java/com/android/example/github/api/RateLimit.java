@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+
+/**
+ * The rate limit reported by GitHub in the headers of a response.
+ */
+public class RateLimit {
+    public final int limit;
+    public final int remaining;
+    // when the quota is restored to its limit
+    public final long resetAtMillis;
+
+    public RateLimit(int limit, int remaining, long resetAtMillis) {
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetAtMillis = resetAtMillis;
+    }
+
+    /**
+     * @return The rate limit or {@code null} if the headers do not have a valid one.
+     */
+    @Nullable
+    public static RateLimit fromHeaders(Headers headers) {
+        String limit = headers.get("X-RateLimit-Limit");
+        String remaining = headers.get("X-RateLimit-Remaining");
+        String reset = headers.get("X-RateLimit-Reset");
+        if (limit == null || remaining == null || reset == null) {
+            return null;
+        }
+        try {
+            // the reset time is in seconds since the epoch
+            return new RateLimit(Integer.parseInt(limit), Integer.parseInt(remaining),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(reset)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit{" +
+                "limit=" + limit +
+                ", remaining=" + remaining +
+                ", resetAtMillis=" + resetAtMillis +
+                '}';
+    }
+}
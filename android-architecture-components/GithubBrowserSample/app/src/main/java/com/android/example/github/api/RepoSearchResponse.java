@@ -23,12 +23,12 @@ import com.android.example.github.vo.Repo;
 
 import android.support.annotation.NonNull;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * POJO to hold repo search responses. This is different from the Entity in the database because
- * we are keeping a search result in 1 row and denormalizing list of results into a single column.
+ * POJO to hold repo search responses. This is different from the Entities in the database because
+ * we keep the state of a search in 1 row and the ids of its results in a separate table.
  */
 public class RepoSearchResponse {
     @SerializedName("total_count")
@@ -36,6 +36,8 @@ public class RepoSearchResponse {
     @SerializedName("items")
     private List<Repo> items;
     private Integer nextPage;
+    // ids of the items, in order. Set by the streaming converter while it decodes the items.
+    private transient int[] repoIds;
 
     public int getTotal() {
         return total;
@@ -45,8 +47,12 @@ public class RepoSearchResponse {
         this.total = total;
     }
 
+    /**
+     * @return The repos of the page, empty if it has none.
+     */
+    @NonNull
     public List<Repo> getItems() {
-        return items;
+        return items == null ? Collections.emptyList() : items;
     }
 
     public void setItems(List<Repo> items) {
@@ -61,11 +67,18 @@ public class RepoSearchResponse {
         return nextPage;
     }
 
+    public void setRepoIds(int[] repoIds) {
+        this.repoIds = repoIds;
+    }
+
     @NonNull
-    public List<Integer> getRepoIds() {
-        List<Integer> repoIds = new ArrayList<>();
-        for (Repo repo : items) {
-            repoIds.add(repo.id);
+    public int[] getRepoIds() {
+        if (repoIds == null) {
+            List<Repo> items = getItems();
+            repoIds = new int[items.size()];
+            for (int i = 0; i < repoIds.length; i++) {
+                repoIds[i] = items.get(i).id;
+            }
         }
         return repoIds;
     }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import com.android.example.github.PriorityExecutor.Priority;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A token bucket that mirrors one of GitHub's rate limits.
+ * <p>
+ * GitHub refills the bucket to its limit at fixed times, each response tells how many tokens are
+ * left and when the next refill happens. Requests take a token when they are sent so that
+ * concurrent requests are accounted for before their responses arrive.
+ * <p>
+ * Low priority requests are shed once the bucket runs low, keeping the rest of the quota for what
+ * the user is waiting for. Until a response has been seen, the limit is unknown and everything is
+ * allowed.
+ */
+public class TokenBucket {
+    // part of the limit that is only available to higher priority requests
+    private static final float PREFETCH_RESERVE = 0.2f;
+    private static final float BACKGROUND_RESERVE = 0.5f;
+
+    private final String name;
+
+    // guarded by this
+    private int limit = -1;
+    private int remaining;
+    private long resetAtMillis;
+    private long acquiredCount;
+    private long shedCount;
+
+    public TokenBucket(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns whether a request with the given priority should be sent now. User visible requests
+     * are always allowed, the server reports an error if the quota is exhausted.
+     */
+    public synchronized boolean tryAcquire(@NonNull Priority priority) {
+        refill();
+        if (priority == Priority.USER_VISIBLE || limit < 0) {
+            return true;
+        }
+        float reserve = priority == Priority.PREFETCH ? PREFETCH_RESERVE : BACKGROUND_RESERVE;
+        if (remaining > limit * reserve) {
+            return true;
+        }
+        shedCount++;
+        return false;
+    }
+
+    /**
+     * Takes a token for a request that is being sent.
+     */
+    synchronized void consume() {
+        refill();
+        acquiredCount++;
+        if (remaining > 0) {
+            remaining--;
+        }
+    }
+
+    /**
+     * Updates the bucket with the rate limit returned by the server.
+     */
+    synchronized void update(@Nullable RateLimit rateLimit) {
+        if (rateLimit == null) {
+            return;
+        }
+        if (rateLimit.resetAtMillis == resetAtMillis) {
+            // responses of the same window can arrive out of order, the lowest count is the latest
+            remaining = Math.min(remaining, rateLimit.remaining);
+        } else if (rateLimit.resetAtMillis > resetAtMillis) {
+            remaining = rateLimit.remaining;
+            resetAtMillis = rateLimit.resetAtMillis;
+        }
+        limit = rateLimit.limit;
+    }
+
+    private void refill() {
+        if (limit >= 0 && now() >= resetAtMillis) {
+            remaining = limit;
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return The limit or -1 if it is not known yet.
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getRemaining() {
+        refill();
+        return remaining;
+    }
+
+    public synchronized long getResetAtMillis() {
+        return resetAtMillis;
+    }
+
+    public synchronized long getAcquiredCount() {
+        return acquiredCount;
+    }
+
+    public synchronized long getShedCount() {
+        return shedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "{" +
+                "limit=" + limit +
+                ", remaining=" + remaining +
+                ", resetAtMillis=" + resetAtMillis +
+                ", sent=" + acquiredCount +
+                ", shed=" + shedCount +
+                '}';
+    }
+}
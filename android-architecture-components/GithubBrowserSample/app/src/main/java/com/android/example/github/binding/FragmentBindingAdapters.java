@@ -18,9 +18,12 @@ package com.android.example.github.binding;
 
 import android.databinding.BindingAdapter;
 import android.support.v4.app.Fragment;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
+import com.bumptech.glide.DrawableRequestBuilder;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
 import javax.inject.Inject;
 
@@ -36,6 +39,26 @@ public class FragmentBindingAdapters {
     }
     @BindingAdapter("imageUrl")
     public void bindImage(ImageView imageView, String url) {
-        Glide.with(fragment).load(url).into(imageView);
+        DrawableRequestBuilder<String> request = imageRequest(url);
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if (params != null && params.width > 0 && params.height > 0) {
+            // no need to wait for a layout pass, and the size matches the preloaded images
+            request = request.override(params.width, params.height);
+        }
+        request.into(imageView);
+    }
+
+    /**
+     * Returns the request used to load an image, which preloaders must use as well to hit the
+     * same cache entries.
+     * <p>
+     * Only the downsampled and cropped image is kept on disk.
+     */
+    public DrawableRequestBuilder<String> imageRequest(String url) {
+        return Glide.with(fragment)
+                .load(url)
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.RESULT)
+                .dontAnimate();
     }
 }
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor;
+import com.android.example.github.PriorityExecutor.Priority;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import timber.log.Timber;
+
+/**
+ * Keeps {@link GithubDb} within a row and byte budget.
+ * <p>
+ * Search results are evicted least recently shown first. Accesses are kept in memory and written
+ * when eviction runs, so that showing results does not invalidate the search tables. Repos that
+ * are no longer in any search result nor in a recorded fetch are then deleted with their
+ * contributors. Fetch records expire after {@link #MAX_FETCHED_AGE_MILLIS}.
+ * <p>
+ * The database uses incremental auto vacuum so the pages freed by eviction are returned to the
+ * file system in small steps instead of by a full {@code VACUUM}. The first eviction switches the
+ * database to it, which takes a single full {@code VACUUM} in the background.
+ */
+@Singleton
+public class CacheEvictor {
+    private static final int MAX_SEARCH_RESULTS = 200;
+
+    private static final long MAX_BYTES = 16 * 1024 * 1024;
+
+    // eviction to meet the byte budget keeps the most recent searches
+    private static final int MIN_SEARCH_RESULTS = 10;
+
+    static final long MAX_FETCHED_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    // pages freed per incremental vacuum step, other writers can run between the steps
+    private static final int VACUUM_STEP_PAGES = 64;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final GithubDb db;
+
+    private final EvictionDao evictionDao;
+
+    private final AppExecutors appExecutors;
+
+    private final int maxSearchResults;
+
+    private final long maxBytes;
+
+    private final Map<String, Long> accessedAt = new HashMap<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final AtomicBoolean autoVacuumChecked = new AtomicBoolean(false);
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong evictedSearchResults = new AtomicLong();
+    private final AtomicLong evictedRepos = new AtomicLong();
+    private final AtomicLong evictedContributors = new AtomicLong();
+    private final AtomicLong vacuumedPages = new AtomicLong();
+    private volatile long databaseBytes;
+    private volatile long usedBytes;
+
+    @Inject
+    public CacheEvictor(GithubDb db, AppExecutors appExecutors) {
+        this(db, appExecutors, MAX_SEARCH_RESULTS, MAX_BYTES);
+    }
+
+    @VisibleForTesting
+    public CacheEvictor(GithubDb db, AppExecutors appExecutors, int maxSearchResults,
+            long maxBytes) {
+        this.db = db;
+        this.evictionDao = db.evictionDao();
+        this.appExecutors = appExecutors;
+        this.maxSearchResults = maxSearchResults;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Records that the results of the query were shown.
+     */
+    public void onSearchAccessed(@NonNull String query) {
+        synchronized (accessedAt) {
+            accessedAt.put(query, now());
+        }
+    }
+
+    /**
+     * Runs {@link #evict()} on the disk executor, unless it is already scheduled. If the executor
+     * rejects it, the next call schedules it again.
+     */
+    public void evictInBackground() {
+        if (scheduled.compareAndSet(false, true)) {
+            appExecutors.diskIO(Priority.BACKGROUND).execute(new PriorityExecutor.Rejectable() {
+                @Override
+                public void run() {
+                    scheduled.set(false);
+                    evict();
+                }
+
+                @Override
+                public void onRejected() {
+                    scheduled.set(false);
+                }
+            });
+        }
+    }
+
+    @WorkerThread
+    public void evict() {
+        runCount.incrementAndGet();
+        Map<String, Long> accessed;
+        synchronized (accessedAt) {
+            accessed = new HashMap<>(accessedAt);
+            accessedAt.clear();
+        }
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Long> entry : accessed.entrySet()) {
+                evictionDao.updateSearchResultAccessedAt(entry.getKey(), entry.getValue());
+            }
+            evictionDao.deleteFetchedResources(now() - MAX_FETCHED_AGE_MILLIS);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        int count = evictSearchResults(evictionDao.countSearchResults() - maxSearchResults);
+        updateSizes();
+        // each step evicts a quarter of the searches until the rows fit in the budget
+        while (usedBytes > maxBytes && count > MIN_SEARCH_RESULTS) {
+            count = evictSearchResults(Math.max(1,
+                    Math.min(count / 4, count - MIN_SEARCH_RESULTS)));
+            updateSizes();
+        }
+        vacuum();
+        updateSizes();
+        Timber.d("%s", this);
+    }
+
+    /**
+     * Deletes the given number of least recently used search results and the rows that are
+     * orphaned, and returns the number of search results left.
+     */
+    private int evictSearchResults(int count) {
+        db.beginTransaction();
+        try {
+            if (count > 0) {
+                evictedSearchResults.addAndGet(
+                        evictionDao.deleteLeastRecentlyUsedSearchResults(count));
+            }
+            evictionDao.deleteOrphanSearchResultItems();
+            // contributors reference their repo
+            evictedContributors.addAndGet(evictionDao.deleteContributorsOfOrphanRepos());
+            evictedRepos.addAndGet(evictionDao.deleteOrphanRepos());
+            int remaining = evictionDao.countSearchResults();
+            db.setTransactionSuccessful();
+            return remaining;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void vacuum() {
+        enableIncrementalVacuum();
+        long freePages;
+        while ((freePages = queryLong(db.query("PRAGMA freelist_count", null))) > 0) {
+            long pages = Math.min(freePages, VACUUM_STEP_PAGES);
+            Cursor cursor = db.query("PRAGMA incremental_vacuum(" + pages + ")", null);
+            try {
+                // a page is freed per step of the statement
+                //noinspection StatementWithEmptyBody
+                while (cursor.moveToNext()) {
+                }
+            } finally {
+                cursor.close();
+            }
+            vacuumedPages.addAndGet(pages);
+            if (queryLong(db.query("PRAGMA freelist_count", null)) >= freePages) {
+                // the database does not use incremental vacuum
+                break;
+            }
+        }
+    }
+
+    private void enableIncrementalVacuum() {
+        if (!autoVacuumChecked.compareAndSet(false, true)) {
+            return;
+        }
+        if (queryLong(db.query("PRAGMA auto_vacuum", null)) != AUTO_VACUUM_INCREMENTAL) {
+            SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+            database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            // the mode of a database that has tables only changes with a VACUUM
+            database.execSQL("VACUUM");
+        }
+    }
+
+    private void updateSizes() {
+        long pageSize = queryLong(db.query("PRAGMA page_size", null));
+        long pageCount = queryLong(db.query("PRAGMA page_count", null));
+        long freePages = queryLong(db.query("PRAGMA freelist_count", null));
+        databaseBytes = pageCount * pageSize;
+        usedBytes = (pageCount - freePages) * pageSize;
+    }
+
+    private static long queryLong(Cursor cursor) {
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @VisibleForTesting
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getEvictedSearchResults() {
+        return evictedSearchResults.get();
+    }
+
+    public long getEvictedRepos() {
+        return evictedRepos.get();
+    }
+
+    public long getEvictedContributors() {
+        return evictedContributors.get();
+    }
+
+    public long getVacuumedPages() {
+        return vacuumedPages.get();
+    }
+
+    /**
+     * The size of the database file after the last eviction.
+     */
+    public long getDatabaseBytes() {
+        return databaseBytes;
+    }
+
+    /**
+     * The size of the pages used by rows after the last eviction.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheEvictor{" +
+                "runs=" + getRunCount() +
+                ", evictedSearchResults=" + getEvictedSearchResults() +
+                ", evictedRepos=" + getEvictedRepos() +
+                ", evictedContributors=" + getEvictedContributors() +
+                ", vacuumedPages=" + getVacuumedPages() +
+                ", databaseBytes=" + getDatabaseBytes() +
+                ", usedBytes=" + getUsedBytes() +
+                '}';
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Transformations;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+/**
+ * A size bounded LRU cache of the rows of a table, keyed by primary key.
+ * <p>
+ * Values are added as they are loaded through {@link #track(String, LiveData)}, which lets a
+ * screen that is opened again show its data before the database query returns. Values are
+ * removed by {@link GithubDbCache} when their rows are written.
+ *
+ * @param <T> The entity type, or a list of entities sharing a key prefix.
+ */
+public class EntityCache<T> {
+    private final String name;
+
+    private final LruCache<String, T> cache;
+
+    /**
+     * @param maxBytes The approximate amount of memory the cache can use.
+     * @param sizer    Estimates the memory used by a value, in bytes.
+     */
+    EntityCache(String name, int maxBytes, @NonNull Sizer<T> sizer) {
+        this.name = name;
+        cache = new LruCache<String, T>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, T value) {
+                return sizer.sizeOf(value);
+            }
+        };
+    }
+
+    @Nullable
+    public T get(@NonNull String key) {
+        return cache.get(key);
+    }
+
+    public void put(@NonNull String key, @Nullable T value) {
+        if (value == null) {
+            remove(key);
+        } else {
+            cache.put(key, value);
+        }
+    }
+
+    public void remove(@NonNull String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Returns a LiveData that dispatches the values of the source and keeps the latest one in
+     * the cache.
+     */
+    public LiveData<T> track(@NonNull String key, @NonNull LiveData<T> source) {
+        return Transformations.map(source, value -> {
+            put(key, value);
+            return value;
+        });
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public float getHitRatio() {
+        int hits = cache.hitCount();
+        int requests = hits + cache.missCount();
+        return requests == 0 ? 0 : hits / (float) requests;
+    }
+
+    /**
+     * Returns the estimated memory used by the cached values, in bytes.
+     */
+    public int getSizeBytes() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{" +
+                "hitRatio=" + getHitRatio() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", sizeBytes=" + getSizeBytes() +
+                ", maxSizeBytes=" + cache.maxSize() +
+                '}';
+    }
+
+    interface Sizer<T> {
+        int sizeOf(@NonNull T value);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Query;
+
+/**
+ * Interface for database access on the cached rows that can be evicted, see
+ * {@link CacheEvictor}.
+ */
+@Dao
+public interface EvictionDao {
+    // a repo is kept while it is in search results or a fetch that returned it is recorded
+    String ORPHAN_REPO = "Repo.id NOT IN (SELECT repoId FROM RepoSearchResultItem) "
+            + "AND 'repos/' || Repo.owner_login || '/' || Repo.name "
+            + "NOT IN (SELECT resourceKey FROM FetchedResource) "
+            + "AND 'repos/' || Repo.owner_login || '/' || Repo.name || '/contributors' "
+            + "NOT IN (SELECT resourceKey FROM FetchedResource) "
+            + "AND 'repos/' || Repo.owner_login || '/' || Repo.name || '/details' "
+            + "NOT IN (SELECT resourceKey FROM FetchedResource) "
+            + "AND 'users/' || Repo.owner_login || '/repos' "
+            + "NOT IN (SELECT resourceKey FROM FetchedResource)";
+
+    @Query("UPDATE RepoSearchResult SET accessedAt = :accessedAt WHERE query = :query")
+    int updateSearchResultAccessedAt(String query, long accessedAt);
+
+    @Query("SELECT COUNT(*) FROM RepoSearchResult")
+    int countSearchResults();
+
+    @Query("DELETE FROM RepoSearchResult WHERE query IN "
+            + "(SELECT query FROM RepoSearchResult ORDER BY accessedAt LIMIT :count)")
+    int deleteLeastRecentlyUsedSearchResults(int count);
+
+    @Query("DELETE FROM RepoSearchResultItem "
+            + "WHERE query NOT IN (SELECT query FROM RepoSearchResult)")
+    int deleteOrphanSearchResultItems();
+
+    @Query("DELETE FROM FetchedResource WHERE fetchedAt < :fetchedBefore")
+    int deleteFetchedResources(long fetchedBefore);
+
+    @Query("DELETE FROM Contributor WHERE EXISTS (SELECT 1 FROM Repo "
+            + "WHERE Repo.name = Contributor.repoName AND Repo.owner_login = Contributor.repoOwner "
+            + "AND " + ORPHAN_REPO + ")")
+    int deleteContributorsOfOrphanRepos();
+
+    @Query("DELETE FROM Repo WHERE " + ORPHAN_REPO)
+    int deleteOrphanRepos();
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.db;
+
+import com.android.example.github.vo.FetchedResource;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.OnConflictStrategy;
+import android.arch.persistence.room.Query;
+
+/**
+ * Interface for database access on the fetch timestamps of remote resources.
+ */
+@Dao
+public interface FetchedResourceDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(FetchedResource fetchedResource);
+
+    @Query("SELECT * FROM FetchedResource WHERE resourceKey = :resourceKey")
+    FetchedResource find(String resourceKey);
+
+    @Query("UPDATE FetchedResource SET fetchedAt = :fetchedAt WHERE resourceKey = :resourceKey")
+    int updateFetchedAt(String resourceKey, long fetchedAt);
+}
@@ -18,21 +18,98 @@ package com.android.example.github.db;
 
 
 import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.FetchedResource;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.RepoSearchResultItem;
 import com.android.example.github.vo.User;
 
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.RoomDatabase;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
 /**
  * Main database description.
  */
 @Database(entities = {User.class, Repo.class, Contributor.class,
-        RepoSearchResult.class}, version = 3)
+        RepoSearchResult.class, RepoSearchResultItem.class, FetchedResource.class}, version = 10)
 public abstract class GithubDb extends RoomDatabase {
+    // transactions are confined to the thread that began them
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<Transaction>() {
+        @Override
+        protected Transaction initialValue() {
+            return new Transaction();
+        }
+    };
+
+    @Nullable
+    private volatile CommitListener commitListener;
 
     abstract public UserDao userDao();
 
     abstract public RepoDao repoDao();
+
+    abstract public FetchedResourceDao fetchedResourceDao();
+
+    abstract public EvictionDao evictionDao();
+
+    /**
+     * Sets the listener of the outermost transactions begun through {@link #beginTransaction()},
+     * which includes the writes of the DAOs.
+     */
+    public void setCommitListener(@Nullable CommitListener listener) {
+        commitListener = listener;
+    }
+
+    @Override
+    public void beginTransaction() {
+        super.beginTransaction();
+        transaction.get().depth++;
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        Transaction current = transaction.get();
+        CommitListener listener = commitListener;
+        if (current.depth == 1 && listener != null) {
+            // nothing can be written once the transaction is marked successful
+            current.afterCommit = listener.beforeCommit();
+        }
+        super.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        Transaction current = transaction.get();
+        Runnable afterCommit = null;
+        if (--current.depth == 0) {
+            afterCommit = current.afterCommit;
+            current.afterCommit = null;
+        }
+        super.endTransaction();
+        if (afterCommit != null) {
+            afterCommit.run();
+        }
+    }
+
+    /**
+     * Called on the thread of an outermost transaction when it is marked successful.
+     */
+    public interface CommitListener {
+        /**
+         * Runs in the transaction, anything it writes is committed with it.
+         *
+         * @return A task run once the transaction ended, or {@code null}.
+         */
+        @WorkerThread
+        @Nullable
+        Runnable beforeCommit();
+    }
+
+    private static class Transaction {
+        int depth;
+        @Nullable
+        Runnable afterCommit;
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.User;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In memory caches of the rows that screens load by primary key: repos, users and the
+ * contributors of a repo.
+ * <p>
+ * The {@link KeyedInvalidationTracker} tells which rows were written, so a write only removes the
+ * cached values with the written keys. Readers still observe the database and update the cache
+ * with what it returns.
+ */
+@Singleton
+public class GithubDbCache {
+    private static final int MAX_BYTES_PER_TABLE = 256 * 1024;
+
+    // rough estimates of the memory used by an object header and its fields, and by a string
+    private static final int OBJECT_BYTES = 48;
+    private static final int STRING_BYTES = 40;
+
+    private final EntityCache<Repo> repos = new EntityCache<>("repos", MAX_BYTES_PER_TABLE,
+            GithubDbCache::sizeOf);
+
+    private final EntityCache<User> users = new EntityCache<>("users", MAX_BYTES_PER_TABLE,
+            GithubDbCache::sizeOf);
+
+    private final EntityCache<List<Contributor>> contributors = new EntityCache<>(
+            "contributors", MAX_BYTES_PER_TABLE, GithubDbCache::sizeOf);
+
+    @Inject
+    public GithubDbCache(KeyedInvalidationTracker invalidationTracker) {
+        invalidationTracker.addWrittenKeysObserver(this::invalidate);
+    }
+
+    /**
+     * Keyed by {@link #repoKey(String, String)}.
+     */
+    public EntityCache<Repo> repos() {
+        return repos;
+    }
+
+    /**
+     * Keyed by login.
+     */
+    public EntityCache<User> users() {
+        return users;
+    }
+
+    /**
+     * The contributors of a repo, keyed by {@link #repoKey(String, String)}.
+     */
+    public EntityCache<List<Contributor>> contributors() {
+        return contributors;
+    }
+
+    public static String repoKey(String owner, String name) {
+        return owner + "/" + name;
+    }
+
+    @VisibleForTesting
+    void invalidate(String table, Set<String> keys) {
+        EntityCache<?> cache;
+        switch (table.toLowerCase(Locale.US)) {
+            case "repo":
+                cache = repos;
+                break;
+            case "user":
+                cache = users;
+                break;
+            case "contributor":
+                cache = contributors;
+                break;
+            default:
+                return;
+        }
+        for (String key : keys) {
+            cache.remove(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GithubDbCache{" + repos + ", " + users + ", " + contributors + '}';
+    }
+
+    private static int sizeOf(Repo repo) {
+        int size = 2 * OBJECT_BYTES + sizeOf(repo.name) + sizeOf(repo.fullName)
+                + sizeOf(repo.description);
+        if (repo.owner != null) {
+            size += sizeOf(repo.owner.login) + sizeOf(repo.owner.url);
+        }
+        return size;
+    }
+
+    private static int sizeOf(User user) {
+        return OBJECT_BYTES + sizeOf(user.login) + sizeOf(user.avatarUrl) + sizeOf(user.name)
+                + sizeOf(user.company) + sizeOf(user.reposUrl) + sizeOf(user.blog);
+    }
+
+    private static int sizeOf(List<Contributor> contributors) {
+        int size = OBJECT_BYTES;
+        for (Contributor contributor : contributors) {
+            // repo name and owner are shared with the key
+            size += OBJECT_BYTES + sizeOf(contributor.getLogin())
+                    + sizeOf(contributor.getAvatarUrl());
+        }
+        return size;
+    }
+
+    private static int sizeOf(@Nullable String value) {
+        return value == null ? 0 : STRING_BYTES + 2 * value.length();
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.RoomDatabase;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Creates LiveData queries that run again only when a row they read was written, rather than on
+ * any write to their tables like Room's LiveData queries do.
+ * <p>
+ * Each query is identified by a key in the tables it reads. Triggers created by {@link #CALLBACK},
+ * which must be added to the database builder, log the keys of the rows written to these tables:
+ * <ul>
+ * <li>repo: {@code owner/name} and {@code owner}, for the repos of an owner
+ * <li>contributor: {@code repoOwner/repoName}
+ * <li>user: {@code login}
+ * </ul>
+ * The log is read and cleared by each transaction that wrote to it, through
+ * {@link GithubDb#setCommitListener(GithubDb.CommitListener)}, and once it is committed only the
+ * active queries whose key was written run again. Queries run on {@link AppExecutors#diskRead()}.
+ */
+@Singleton
+public class KeyedInvalidationTracker {
+    private static final String[] CREATE_STATEMENTS = {
+            // left over if the database was recreated by a destructive migration
+            "DROP TABLE IF EXISTS written_key",
+            "CREATE TABLE written_key (tableName TEXT NOT NULL, key TEXT NOT NULL)"
+    };
+
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            for (String statement : CREATE_STATEMENTS) {
+                db.execSQL(statement);
+            }
+            createTriggers(db, "Repo", "repo", "%1$s.owner_login || '/' || %1$s.name",
+                    "%1$s.owner_login");
+            createTriggers(db, "Contributor", "contributor",
+                    "%1$s.repoOwner || '/' || %1$s.repoName");
+            createTriggers(db, "User", "user", "%1$s.login");
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            // nothing observed these writes
+            db.execSQL("DELETE FROM written_key");
+        }
+    };
+
+    private final GithubDb db;
+
+    private final Executor executor;
+
+    // table -> observers of keys in it, e.g. active queries that read it
+    private final Map<String, List<KeyObserver>> observers = new HashMap<>();
+
+    private final List<WrittenKeysObserver> writtenKeysObservers = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong requeryCount = new AtomicLong();
+
+    private final AtomicLong skippedRequeryCount = new AtomicLong();
+
+    @Inject
+    public KeyedInvalidationTracker(GithubDb db, AppExecutors appExecutors) {
+        this.db = db;
+        this.executor = appExecutors.diskRead();
+        db.setCommitListener(this::drainWrittenKeys);
+    }
+
+    /**
+     * Returns a LiveData that runs the query, a single statement, when it becomes active, then
+     * each time a row with the given key is written to one of the tables. A query that reads
+     * several of the tables joins them, see {@link QueryLiveData}.
+     */
+    public <T> LiveData<T> createLiveData(@NonNull String[] tables, @NonNull String key,
+            @NonNull Callable<T> query) {
+        return new KeyedLiveData<>(this, tables, key, query);
+    }
+
+    /**
+     * Starts notifying the observer of all the keys written to the tables, e.g. to drop the
+     * written rows from a cache. It is notified before the queries of the keys run again.
+     */
+    public void addWrittenKeysObserver(@NonNull WrittenKeysObserver observer) {
+        writtenKeysObservers.add(observer);
+    }
+
+    /**
+     * Starts notifying the observer when a row with its key is written to one of its tables.
+     */
+    void addObserver(KeyObserver observer) {
+        synchronized (observers) {
+            for (String table : observer.tables) {
+                List<KeyObserver> tableObservers = observers.get(table);
+                if (tableObservers == null) {
+                    tableObservers = new ArrayList<>();
+                    observers.put(table, tableObservers);
+                }
+                tableObservers.add(observer);
+            }
+        }
+    }
+
+    void removeObserver(KeyObserver observer) {
+        synchronized (observers) {
+            for (String table : observer.tables) {
+                List<KeyObserver> tableObservers = observers.get(table);
+                if (tableObservers != null) {
+                    tableObservers.remove(observer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the observers that were not removed but have nothing left to notify.
+     */
+    void removeClearedObservers() {
+        synchronized (observers) {
+            for (List<KeyObserver> tableObservers : observers.values()) {
+                Iterator<KeyObserver> iterator = tableObservers.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().isCleared()) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getObserverCount(String table) {
+        synchronized (observers) {
+            List<KeyObserver> tableObservers = observers.get(table);
+            return tableObservers == null ? 0 : tableObservers.size();
+        }
+    }
+
+    /**
+     * How many times a query ran again because its key was written.
+     */
+    public long getRequeryCount() {
+        return requeryCount.get();
+    }
+
+    /**
+     * How many times a query did not run again although its table was written, which a Room
+     * LiveData query would have done.
+     */
+    public long getSkippedRequeryCount() {
+        return skippedRequeryCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "KeyedInvalidationTracker{" +
+                "requeries=" + getRequeryCount() +
+                ", skippedRequeries=" + getSkippedRequeryCount() +
+                '}';
+    }
+
+    /**
+     * Reads and clears the keys logged by the running transaction.
+     *
+     * @return Dispatches the keys once the transaction ended, or {@code null} if none were logged.
+     */
+    @WorkerThread
+    @Nullable
+    private Runnable drainWrittenKeys() {
+        Map<String, Set<String>> writtenKeys = readWrittenKeys();
+        // a transaction that is rolled back in the end only makes its queries run again needlessly
+        return writtenKeys.isEmpty() ? null : () -> dispatch(writtenKeys);
+    }
+
+    /**
+     * Returns the keys written to each table and clears them, in the running transaction.
+     */
+    private Map<String, Set<String>> readWrittenKeys() {
+        Map<String, Set<String>> writtenKeys = new HashMap<>();
+        Cursor cursor = db.query("SELECT DISTINCT tableName, key FROM written_key", null);
+        try {
+            while (cursor.moveToNext()) {
+                Set<String> keys = writtenKeys.get(cursor.getString(0));
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    writtenKeys.put(cursor.getString(0), keys);
+                }
+                keys.add(cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        if (!writtenKeys.isEmpty()) {
+            db.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM written_key");
+        }
+        return writtenKeys;
+    }
+
+    @VisibleForTesting
+    void dispatch(Map<String, Set<String>> writtenKeys) {
+        for (WrittenKeysObserver observer : writtenKeysObservers) {
+            for (Map.Entry<String, Set<String>> entry : writtenKeys.entrySet()) {
+                observer.onWritten(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<KeyObserver> written = new HashSet<>();
+        Set<KeyObserver> notWritten = new HashSet<>();
+        synchronized (observers) {
+            for (Map.Entry<String, Set<String>> entry : writtenKeys.entrySet()) {
+                List<KeyObserver> tableObservers = observers.get(entry.getKey());
+                if (tableObservers == null) {
+                    continue;
+                }
+                for (KeyObserver observer : tableObservers) {
+                    if (entry.getValue().contains(observer.key)) {
+                        written.add(observer);
+                    } else {
+                        notWritten.add(observer);
+                    }
+                }
+            }
+        }
+        notWritten.removeAll(written);
+        // outside of the lock, observers may remove themselves
+        for (KeyObserver observer : written) {
+            observer.onWritten();
+        }
+        requeryCount.addAndGet(written.size());
+        skippedRequeryCount.addAndGet(notWritten.size());
+    }
+
+    /**
+     * Creates the triggers that log the keys of the rows inserted, updated and deleted in a table.
+     * The key expressions refer to the row as {@code %1$s}.
+     */
+    private static void createTriggers(SupportSQLiteDatabase db, String table, String name,
+            String... keys) {
+        // the event, then the rows whose keys are logged
+        String[][] events = {{"INSERT", "new"}, {"UPDATE", "old", "new"}, {"DELETE", "old"}};
+        for (String[] event : events) {
+            StringBuilder trigger = new StringBuilder("CREATE TRIGGER ").append(name)
+                    .append("_written_key_").append(event[0].toLowerCase(Locale.US))
+                    .append(" AFTER ").append(event[0]).append(" ON ").append(table)
+                    .append(" BEGIN ");
+            for (int i = 1; i < event.length; i++) {
+                for (String key : keys) {
+                    trigger.append("INSERT INTO written_key VALUES ('").append(name)
+                            .append("', ").append(String.format(key, event[i])).append("); ");
+                }
+            }
+            db.execSQL(trigger.append("END").toString());
+        }
+    }
+
+    /**
+     * Observes all the keys written to the tables, on the thread that committed them.
+     */
+    public interface WrittenKeysObserver {
+        /**
+         * @param table The table name used in the keys, e.g. {@code repo}.
+         * @param keys  The keys of the rows written to the table.
+         */
+        void onWritten(@NonNull String table, @NonNull Set<String> keys);
+    }
+
+    /**
+     * Observes the rows with a key in some tables. It is notified on the thread that committed the
+     * write and should hand any work over to an executor.
+     */
+    abstract static class KeyObserver {
+        final String[] tables;
+        final String key;
+
+        KeyObserver(@NonNull String[] tables, @NonNull String key) {
+            this.tables = tables;
+            this.key = key;
+        }
+
+        abstract void onWritten();
+
+        /**
+         * Returns true if nothing is left to notify, the observer is then removed by
+         * {@link #removeClearedObservers()}.
+         */
+        boolean isCleared() {
+            return false;
+        }
+    }
+
+    private static class KeyedLiveData<T> extends QueryLiveData<T> {
+        private final KeyedInvalidationTracker tracker;
+        private final KeyObserver observer;
+
+        KeyedLiveData(KeyedInvalidationTracker tracker, String[] tables, String key,
+                Callable<T> query) {
+            super(tracker.db, tracker.executor, query);
+            this.tracker = tracker;
+            observer = new KeyObserver(tables, key) {
+                @Override
+                void onWritten() {
+                    invalidate();
+                }
+            };
+        }
+
+        @Override
+        protected void onActive() {
+            // before the first query so that no write is missed
+            tracker.addObserver(observer);
+            super.onActive();
+        }
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            tracker.removeObserver(observer);
+        }
+    }
+}
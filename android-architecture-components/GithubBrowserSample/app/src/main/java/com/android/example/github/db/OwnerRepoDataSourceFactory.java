@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.vo.Repo;
+
+import android.arch.paging.DataSource;
+import android.arch.paging.PositionalDataSource;
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages through the repos of an owner, sorted by stars.
+ * <p>
+ * A Room generated data source is invalidated by any write to the repo table, e.g. a page of
+ * search results, and the whole list is then loaded and diffed again. The data sources created
+ * here observe the owner key of the {@link KeyedInvalidationTracker} and are only invalidated if
+ * a repo of the owner was written.
+ */
+public class OwnerRepoDataSourceFactory implements DataSource.Factory<Integer, Repo> {
+    private final GithubDb db;
+    private final KeyedInvalidationTracker tracker;
+    private final String owner;
+
+    public OwnerRepoDataSourceFactory(GithubDb db, KeyedInvalidationTracker tracker,
+            String owner) {
+        this.db = db;
+        this.tracker = tracker;
+        this.owner = owner;
+    }
+
+    @Override
+    public DataSource<Integer, Repo> create() {
+        // the data sources replaced by this one, or abandoned, stop observing
+        tracker.removeClearedObservers();
+        OwnerRepoDataSource dataSource = new OwnerRepoDataSource(db, owner);
+        // observe before the first load so that no write is missed
+        tracker.addObserver(new WeakObserver(tracker, dataSource, owner));
+        return dataSource;
+    }
+
+    static class OwnerRepoDataSource extends PositionalDataSource<Repo> {
+        private final RepoDao repoDao;
+        private final String owner;
+
+        OwnerRepoDataSource(GithubDb db, String owner) {
+            this.repoDao = db.repoDao();
+            this.owner = owner;
+        }
+
+        @Override
+        public void loadInitial(@NonNull LoadInitialParams params,
+                @NonNull LoadInitialCallback<Repo> callback) {
+            // the count comes with the page so that they agree without a transaction. The page
+            // is read again if the list shrank below the requested position.
+            int position = computeInitialLoadPosition(params,
+                    params.requestedStartPosition + params.requestedLoadSize);
+            List<RepoDao.CountedRepoRow> rows;
+            int totalCount;
+            while (true) {
+                rows = repoDao.findCountedRepositories(owner, position,
+                        params.requestedLoadSize);
+                totalCount = rows.get(0).total;
+                int clamped = computeInitialLoadPosition(params, totalCount);
+                if (clamped == position) {
+                    break;
+                }
+                position = clamped;
+            }
+            List<Repo> repos = new ArrayList<>(rows.size());
+            for (RepoDao.CountedRepoRow row : rows) {
+                if (row.repo != null) {
+                    repos.add(row.repo);
+                }
+            }
+            callback.onResult(repos, position, totalCount);
+        }
+
+        @Override
+        public void loadRange(@NonNull LoadRangeParams params,
+                @NonNull LoadRangeCallback<Repo> callback) {
+            callback.onResult(repoDao.findRepositories(owner, params.startPosition,
+                    params.loadSize));
+        }
+    }
+
+    /**
+     * Does not keep an abandoned data source, whose paged list is no longer used, from being
+     * collected. It stops observing on the next write to the owner's repos after that, or when
+     * the next data source is created.
+     */
+    private static class WeakObserver extends KeyedInvalidationTracker.KeyObserver {
+        private final KeyedInvalidationTracker tracker;
+        private final WeakReference<OwnerRepoDataSource> dataSource;
+
+        WeakObserver(KeyedInvalidationTracker tracker, OwnerRepoDataSource dataSource,
+                String owner) {
+            super(new String[]{"repo"}, owner);
+            this.tracker = tracker;
+            this.dataSource = new WeakReference<>(dataSource);
+        }
+
+        @Override
+        void onWritten() {
+            // a data source is invalidated once, the next one observes again
+            tracker.removeObserver(this);
+            OwnerRepoDataSource source = dataSource.get();
+            if (source != null) {
+                source.invalidate();
+            }
+        }
+
+        @Override
+        boolean isCleared() {
+            OwnerRepoDataSource source = dataSource.get();
+            return source == null || source.isInvalid();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.persistence.room.InvalidationTracker;
+import android.arch.persistence.room.RoomDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A LiveData that runs a query on the executor when it becomes active and again each time one of
+ * the given tables changes, and dispatches its result.
+ * <p>
+ * A query that combines several tables should read them in a single statement, e.g. a join: SQLite
+ * reads a statement from one snapshot of the database, so the results are consistent with each
+ * other without a transaction, and a write to several of the tables is dispatched once. With
+ * write-ahead logging the read does not keep writers waiting.
+ *
+ * @param <T> The result of the query
+ */
+public class QueryLiveData<T> extends LiveData<T> {
+    private final RoomDatabase db;
+    private final Executor executor;
+    private final Callable<T> query;
+    @Nullable
+    private final InvalidationTracker.Observer observer;
+
+    private final AtomicBoolean invalid = new AtomicBoolean(true);
+    private final AtomicBoolean computing = new AtomicBoolean(false);
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            boolean computed;
+            do {
+                computed = false;
+                // only one thread computes, it checks again for changes made while it ran
+                if (computing.compareAndSet(false, true)) {
+                    try {
+                        T value = null;
+                        while (invalid.compareAndSet(true, false)) {
+                            computed = true;
+                            value = compute();
+                        }
+                        if (computed) {
+                            postValue(value);
+                        }
+                    } finally {
+                        computing.set(false);
+                    }
+                }
+            } while (computed && invalid.get());
+        }
+    };
+
+    public QueryLiveData(RoomDatabase db, Executor executor, String[] tables,
+            Callable<T> query) {
+        this.db = db;
+        this.executor = executor;
+        this.query = query;
+        observer = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+    }
+
+    /**
+     * Creates a LiveData whose changes are reported through {@link #invalidate()}.
+     */
+    QueryLiveData(RoomDatabase db, Executor executor, Callable<T> query) {
+        this.db = db;
+        this.executor = executor;
+        this.query = query;
+        observer = null;
+    }
+
+    /**
+     * Runs the query again.
+     */
+    void invalidate() {
+        invalid.set(true);
+        executor.execute(refresh);
+    }
+
+    private T compute() {
+        try {
+            return query.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("query failed", e);
+        }
+    }
+
+    @Override
+    protected void onActive() {
+        // changes are not observed while inactive
+        invalid.set(true);
+        if (observer != null) {
+            db.getInvalidationTracker().addObserver(observer);
+        }
+        executor.execute(refresh);
+    }
+
+    @Override
+    protected void onInactive() {
+        if (observer != null) {
+            db.getInvalidationTracker().removeObserver(observer);
+        }
+    }
+}
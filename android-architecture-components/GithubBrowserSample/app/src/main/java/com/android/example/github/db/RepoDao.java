@@ -18,18 +18,20 @@ package com.android.example.github.db;
 
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.RepoSearchResultItem;
 
 import android.arch.lifecycle.LiveData;
-import android.arch.lifecycle.Transformations;
+import android.arch.paging.DataSource;
 import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Embedded;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.OnConflictStrategy;
 import android.arch.persistence.room.Query;
 import android.arch.persistence.room.RoomWarnings;
-import android.util.SparseIntArray;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -59,36 +61,139 @@ public abstract class RepoDao {
             + "ORDER BY contributions DESC")
     public abstract LiveData<List<Contributor>> loadContributors(String owner, String name);
 
+    @Query("SELECT * FROM repo WHERE owner_login = :login AND name = :name")
+    public abstract Repo findRepo(String login, String name);
+
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions FROM contributor "
+            + "WHERE repoName = :name AND repoOwner = :owner "
+            + "ORDER BY contributions DESC")
+    public abstract List<Contributor> findContributors(String owner, String name);
+
+    /**
+     * Reads a repo with its contributors in one statement, so that both come from the same
+     * snapshot of the database without a transaction. Contributors are only saved with their repo.
+     */
+    public RepoDetails findRepoDetails(String owner, String name) {
+        List<RepoContributorRow> rows = findRepoContributorRows(owner, name);
+        if (rows.isEmpty()) {
+            return new RepoDetails(null, null);
+        }
+        List<Contributor> contributors = new ArrayList<>(rows.size());
+        for (RepoContributorRow row : rows) {
+            if (row.contributor != null) {
+                contributors.add(row.contributor);
+            }
+        }
+        return new RepoDetails(rows.get(0).repo, contributors);
+    }
+
+    @Query("SELECT repo.*, contributor.login AS contributor_login, "
+            + "contributor.contributions AS contributor_contributions, "
+            + "contributor.avatarUrl AS contributor_avatarUrl, "
+            + "contributor.repoName AS contributor_repoName, "
+            + "contributor.repoOwner AS contributor_repoOwner FROM repo "
+            + "LEFT JOIN contributor "
+            + "ON contributor.repoName = repo.name AND contributor.repoOwner = repo.owner_login "
+            + "WHERE repo.owner_login = :owner AND repo.name = :name "
+            + "ORDER BY contributor.contributions DESC")
+    protected abstract List<RepoContributorRow> findRepoContributorRows(String owner, String name);
+
     @Query("SELECT * FROM Repo "
             + "WHERE owner_login = :owner "
             + "ORDER BY stars DESC")
     public abstract LiveData<List<Repo>> loadRepositories(String owner);
 
+    @Query("SELECT * FROM Repo "
+            + "WHERE owner_login = :owner "
+            + "ORDER BY stars DESC "
+            + "LIMIT :limit OFFSET :offset")
+    public abstract List<Repo> findRepositories(String owner, int offset, int limit);
+
+    @Query("SELECT COUNT(*) FROM Repo WHERE owner_login = :owner")
+    public abstract int countRepositories(String owner);
+
+    /**
+     * Reads a page of the repos of an owner along with the number of repos the owner has, in one
+     * statement so that they agree. There is always a row, without a repo if the page is empty.
+     */
+    @Query("SELECT page.*, counted.total FROM "
+            + "(SELECT COUNT(*) AS total FROM Repo WHERE owner_login = :owner) AS counted "
+            + "LEFT JOIN (SELECT * FROM Repo WHERE owner_login = :owner "
+            + "ORDER BY stars DESC LIMIT :limit OFFSET :offset) AS page "
+            + "ORDER BY page.stars DESC")
+    public abstract List<CountedRepoRow> findCountedRepositories(String owner, int offset,
+            int limit);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     public abstract void insert(RepoSearchResult result);
 
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract LiveData<RepoSearchResult> search(String query);
 
-    public LiveData<List<Repo>> loadOrdered(List<Integer> repoIds) {
-        SparseIntArray order = new SparseIntArray();
-        int index = 0;
-        for (Integer repoId : repoIds) {
-            order.put(repoId, index++);
+    @Query("SELECT Repo.* FROM RepoSearchResultItem "
+            + "INNER JOIN Repo ON Repo.id = RepoSearchResultItem.repoId "
+            + "WHERE RepoSearchResultItem.query = :query "
+            + "ORDER BY RepoSearchResultItem.position")
+    public abstract LiveData<List<Repo>> loadSearchResults(String query);
+
+    @Query("SELECT Repo.* FROM RepoSearchResultItem "
+            + "INNER JOIN Repo ON Repo.id = RepoSearchResultItem.repoId "
+            + "WHERE RepoSearchResultItem.query = :query "
+            + "ORDER BY RepoSearchResultItem.position")
+    public abstract DataSource.Factory<Integer, Repo> loadPagedSearchResults(String query);
+
+    /**
+     * Stores the ids of a page of search results, the first one being at the given position.
+     */
+    public void insertSearchResultItems(String query, int firstPosition, int[] repoIds) {
+        List<RepoSearchResultItem> items = new ArrayList<>(repoIds.length);
+        for (int i = 0; i < repoIds.length; i++) {
+            items.add(new RepoSearchResultItem(query, firstPosition + i, repoIds[i]));
         }
-        return Transformations.map(loadById(repoIds), repositories -> {
-            Collections.sort(repositories, (r1, r2) -> {
-                int pos1 = order.get(r1.id);
-                int pos2 = order.get(r2.id);
-                return pos1 - pos2;
-            });
-            return repositories;
-        });
+        insertSearchResultItems(items);
     }
 
-    @Query("SELECT * FROM Repo WHERE id in (:repoIds)")
-    protected abstract LiveData<List<Repo>> loadById(List<Integer> repoIds);
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    protected abstract void insertSearchResultItems(List<RepoSearchResultItem> items);
+
+    @Query("DELETE FROM RepoSearchResultItem WHERE query = :query")
+    public abstract void deleteSearchResultItems(String query);
 
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract RepoSearchResult findSearchResult(String query);
+
+    /**
+     * Returns the cached search whose query is the longest prefix of the given one, which may be
+     * the query itself.
+     */
+    @Query("SELECT * FROM RepoSearchResult "
+            + "WHERE substr(:query, 1, length(query)) = query "
+            + "ORDER BY length(query) DESC LIMIT 1")
+    public abstract RepoSearchResult findLongestPrefixSearchResult(String query);
+
+    @Query("SELECT Repo.* FROM RepoSearchResultItem "
+            + "INNER JOIN Repo ON Repo.id = RepoSearchResultItem.repoId "
+            + "WHERE RepoSearchResultItem.query = :query "
+            + "ORDER BY RepoSearchResultItem.position")
+    public abstract List<Repo> findSearchResults(String query);
+
+    /**
+     * A repo of a page along with the number of rows the whole list has.
+     */
+    public static class CountedRepoRow {
+        @Embedded
+        public Repo repo;
+        public int total;
+    }
+
+    /**
+     * A repo joined with one of its contributors, or with none if it has no contributors.
+     */
+    static class RepoContributorRow {
+        @Embedded
+        public Repo repo;
+        @Embedded(prefix = "contributor_")
+        public Contributor contributor;
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.vo.Repo;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.RoomDatabase;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A full-text index over the name, full name and description of the cached repos, so that they
+ * can be searched without the network.
+ * <p>
+ * Room does not support FTS tables yet: the table and the triggers that keep it in sync with the
+ * Repo table are created by {@link #CALLBACK}, which must be added to the database builder.
+ * Repos are saved with {@code INSERT OR REPLACE}, which only runs the delete triggers of the
+ * replaced row when recursive triggers are enabled, so the callback enables them.
+ */
+@Singleton
+public class RepoSearchIndex {
+    // the matches are ranked in memory, this bounds how many are read
+    private static final int MAX_MATCHES = 200;
+
+    private static final String[] CREATE_STATEMENTS = {
+            // left over if the database was recreated by a destructive migration
+            "DROP TABLE IF EXISTS repo_fts",
+            "CREATE VIRTUAL TABLE repo_fts USING fts4(name, fullName, description)",
+            "CREATE TRIGGER repo_fts_insert AFTER INSERT ON Repo BEGIN "
+                    + "INSERT INTO repo_fts(docid, name, fullName, description) "
+                    + "VALUES (new.rowid, new.name, new.fullName, new.description); END",
+            "CREATE TRIGGER repo_fts_update AFTER UPDATE ON Repo BEGIN "
+                    + "DELETE FROM repo_fts WHERE docid = old.rowid; "
+                    + "INSERT INTO repo_fts(docid, name, fullName, description) "
+                    + "VALUES (new.rowid, new.name, new.fullName, new.description); END",
+            "CREATE TRIGGER repo_fts_delete AFTER DELETE ON Repo BEGIN "
+                    + "DELETE FROM repo_fts WHERE docid = old.rowid; END"
+    };
+
+    private static final String SEARCH = "SELECT Repo.* FROM repo_fts "
+            + "INNER JOIN Repo ON Repo.rowid = repo_fts.docid "
+            + "WHERE repo_fts MATCH ? "
+            + "ORDER BY Repo.stars DESC LIMIT " + MAX_MATCHES;
+
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            for (String statement : CREATE_STATEMENTS) {
+                db.execSQL(statement);
+            }
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            // writes always use this connection
+            db.execSQL("PRAGMA recursive_triggers = ON");
+        }
+    };
+
+    private final GithubDb db;
+
+    @Inject
+    public RepoSearchIndex(GithubDb db) {
+        this.db = db;
+    }
+
+    /**
+     * Returns the cached repos that match every word of the query, the ones whose name matches
+     * first. Words match as prefixes and search qualifiers, e.g. {@code language:java}, are
+     * ignored.
+     * <p>
+     * This reads the database, do not call it on the main thread.
+     */
+    @NonNull
+    public List<Repo> search(@NonNull String query, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Repo> matches = new ArrayList<>();
+        Cursor cursor = db.query(SEARCH, new Object[]{matchQuery(words)});
+        try {
+            int id = cursor.getColumnIndexOrThrow("id");
+            int name = cursor.getColumnIndexOrThrow("name");
+            int fullName = cursor.getColumnIndexOrThrow("fullName");
+            int description = cursor.getColumnIndexOrThrow("description");
+            int stars = cursor.getColumnIndexOrThrow("stars");
+            int ownerLogin = cursor.getColumnIndexOrThrow("owner_login");
+            int ownerUrl = cursor.getColumnIndexOrThrow("owner_url");
+            while (cursor.moveToNext()) {
+                matches.add(new Repo(cursor.getInt(id), cursor.getString(name),
+                        cursor.getString(fullName), cursor.getString(description),
+                        new Repo.Owner(cursor.getString(ownerLogin), cursor.getString(ownerUrl)),
+                        cursor.getInt(stars)));
+            }
+        } finally {
+            cursor.close();
+        }
+        rank(matches, words);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Splits the query the way the FTS tokenizer splits the indexed text.
+     */
+    @VisibleForTesting
+    static List<String> words(String query) {
+        List<String> words = new ArrayList<>();
+        for (String part : query.toLowerCase(Locale.US).split("\\s+")) {
+            if (part.indexOf(':') >= 0) {
+                continue;
+            }
+            for (String word : part.split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() != 0) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    @VisibleForTesting
+    static String matchQuery(List<String> words) {
+        StringBuilder match = new StringBuilder();
+        for (String word : words) {
+            if (match.length() != 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Sorts the repos by where the words match: the name, then the owner, then the description.
+     * The sort is stable, so repos that score the same keep their order by stars.
+     */
+    @VisibleForTesting
+    static void rank(List<Repo> repos, List<String> words) {
+        Collections.sort(repos, (left, right) -> score(right, words) - score(left, words));
+    }
+
+    private static int score(Repo repo, List<String> words) {
+        String name = repo.name.toLowerCase(Locale.US);
+        String owner = repo.owner.login.toLowerCase(Locale.US);
+        int score = 0;
+        for (String word : words) {
+            if (name.equals(word)) {
+                score += 8;
+            } else if (name.contains(word)) {
+                score += 4;
+            } else if (owner.contains(word)) {
+                score += 2;
+            } else {
+                // matched the description
+                score += 1;
+            }
+        }
+        return score;
+    }
+}
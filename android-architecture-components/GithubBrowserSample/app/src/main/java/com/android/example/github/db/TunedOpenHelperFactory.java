@@ -0,0 +1,610 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteOpenHelper;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.util.Pair;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Opens Room databases with settings tuned for an app that reads from the UI while a disk thread
+ * writes:
+ * <ul>
+ * <li>Write-ahead logging, so that reads run on their own connections instead of waiting for the
+ * writer.</li>
+ * <li>{@code synchronous = NORMAL}, which is durable with write-ahead logging: a crash can only
+ * lose the last transactions, not corrupt the database.</li>
+ * <li>4KB pages, for new databases, and a bigger page cache for the connection that writes.</li>
+ * <li>The largest prepared statement cache SQLite allows per connection, so statements that Room
+ * compiles again and again are reused.</li>
+ * </ul>
+ * Statements that take longer than the slow query threshold are logged with their timing, a
+ * negative threshold turns the timing off.
+ * <p>
+ * Pass it to {@code RoomDatabase.Builder#openHelperFactory}.
+ */
+public class TunedOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+    public static final long NO_SLOW_QUERY_LOG = -1;
+
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 50;
+
+    private static final long PAGE_SIZE = 4096;
+
+    // negative values are in KiB
+    private static final int CACHE_SIZE_KIB = 4096;
+
+    // the maximum allowed by the framework
+    private static final int STATEMENT_CACHE_SIZE = 100;
+
+    private final SupportSQLiteOpenHelper.Factory delegate = new FrameworkSQLiteOpenHelperFactory();
+
+    private final long slowQueryMillis;
+
+    public TunedOpenHelperFactory() {
+        this(DEFAULT_SLOW_QUERY_MILLIS);
+    }
+
+    public TunedOpenHelperFactory(long slowQueryMillis) {
+        this.slowQueryMillis = slowQueryMillis;
+    }
+
+    @Override
+    public SupportSQLiteOpenHelper create(SupportSQLiteOpenHelper.Configuration configuration) {
+        SupportSQLiteOpenHelper.Callback callback = configuration.callback;
+        SupportSQLiteOpenHelper.Configuration tuned = SupportSQLiteOpenHelper.Configuration
+                .builder(configuration.context)
+                .name(configuration.name)
+                .callback(new TuningCallback(callback))
+                .build();
+        return new TunedOpenHelper(delegate.create(tuned), slowQueryMillis);
+    }
+
+    /**
+     * Configures each database before Room creates, migrates or opens it.
+     */
+    private static class TuningCallback extends SupportSQLiteOpenHelper.Callback {
+        private final SupportSQLiteOpenHelper.Callback delegate;
+
+        TuningCallback(SupportSQLiteOpenHelper.Callback delegate) {
+            super(delegate.version);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onConfigure(SupportSQLiteDatabase db) {
+            // only changes the page size of a new database, and must come before WAL is enabled
+            db.setPageSize(PAGE_SIZE);
+            db.setMaxSqlCacheSize(STATEMENT_CACHE_SIZE);
+            // in-memory databases cannot use write-ahead logging
+            String path = db.getPath();
+            if (path != null && !":memory:".equals(path)) {
+                db.enableWriteAheadLogging();
+            }
+            // pragmas only apply to this connection, the one that writes; the framework
+            // configures the read connections it opens
+            db.execSQL("PRAGMA synchronous = NORMAL");
+            db.execSQL("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+            delegate.onConfigure(db);
+        }
+
+        @Override
+        public void onCreate(SupportSQLiteDatabase db) {
+            delegate.onCreate(db);
+        }
+
+        @Override
+        public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+            delegate.onUpgrade(db, oldVersion, newVersion);
+        }
+
+        @Override
+        public void onDowngrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+            delegate.onDowngrade(db, oldVersion, newVersion);
+        }
+
+        @Override
+        public void onOpen(SupportSQLiteDatabase db) {
+            delegate.onOpen(db);
+        }
+
+        @Override
+        public void onCorruption(SupportSQLiteDatabase db) {
+            delegate.onCorruption(db);
+        }
+    }
+
+    private static class TunedOpenHelper implements SupportSQLiteOpenHelper {
+        private final SupportSQLiteOpenHelper delegate;
+        private final long slowQueryMillis;
+        private SupportSQLiteDatabase database;
+        private TimedDatabase timedDatabase;
+
+        TunedOpenHelper(SupportSQLiteOpenHelper delegate, long slowQueryMillis) {
+            this.delegate = delegate;
+            this.slowQueryMillis = slowQueryMillis;
+        }
+
+        @Override
+        public String getDatabaseName() {
+            return delegate.getDatabaseName();
+        }
+
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            delegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @Override
+        public SupportSQLiteDatabase getWritableDatabase() {
+            return timed(delegate.getWritableDatabase());
+        }
+
+        @Override
+        public SupportSQLiteDatabase getReadableDatabase() {
+            return timed(delegate.getReadableDatabase());
+        }
+
+        // the framework returns the same database until it is closed
+        private synchronized SupportSQLiteDatabase timed(SupportSQLiteDatabase db) {
+            if (slowQueryMillis < 0) {
+                return db;
+            }
+            if (database != db) {
+                database = db;
+                timedDatabase = new TimedDatabase(db, slowQueryMillis);
+            }
+            return timedDatabase;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Logs the statements that take longer than the slow query threshold.
+     */
+    private static class TimedDatabase implements SupportSQLiteDatabase {
+        private final SupportSQLiteDatabase delegate;
+        private final long slowQueryMillis;
+
+        TimedDatabase(SupportSQLiteDatabase delegate, long slowQueryMillis) {
+            this.delegate = delegate;
+            this.slowQueryMillis = slowQueryMillis;
+        }
+
+        void logIfSlow(String sql, long startMillis) {
+            long duration = SystemClock.uptimeMillis() - startMillis;
+            if (duration >= slowQueryMillis) {
+                Timber.w("Slow query, %d ms: %s", duration, sql);
+            }
+        }
+
+        private Cursor timed(String sql, Cursor cursor, long startMillis) {
+            return new TimedCursor(cursor, sql, startMillis, this);
+        }
+
+        @Override
+        public SupportSQLiteStatement compileStatement(String sql) {
+            return new TimedStatement(delegate.compileStatement(sql), sql, this);
+        }
+
+        @Override
+        public Cursor query(String query) {
+            long start = SystemClock.uptimeMillis();
+            return timed(query, delegate.query(query), start);
+        }
+
+        @Override
+        public Cursor query(String query, Object[] bindArgs) {
+            long start = SystemClock.uptimeMillis();
+            return timed(query, delegate.query(query, bindArgs), start);
+        }
+
+        @Override
+        public Cursor query(SupportSQLiteQuery query) {
+            long start = SystemClock.uptimeMillis();
+            return timed(query.getSql(), delegate.query(query), start);
+        }
+
+        @Override
+        public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+            long start = SystemClock.uptimeMillis();
+            return timed(query.getSql(), delegate.query(query, cancellationSignal), start);
+        }
+
+        @Override
+        public long insert(String table, int conflictAlgorithm, ContentValues values)
+                throws SQLException {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.insert(table, conflictAlgorithm, values);
+            } finally {
+                logIfSlow("INSERT INTO " + table, start);
+            }
+        }
+
+        @Override
+        public int delete(String table, String whereClause, Object[] whereArgs) {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.delete(table, whereClause, whereArgs);
+            } finally {
+                logIfSlow("DELETE FROM " + table + " WHERE " + whereClause, start);
+            }
+        }
+
+        @Override
+        public int update(String table, int conflictAlgorithm, ContentValues values,
+                String whereClause, Object[] whereArgs) {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+            } finally {
+                logIfSlow("UPDATE " + table + " WHERE " + whereClause, start);
+            }
+        }
+
+        @Override
+        public void execSQL(String sql) throws SQLException {
+            long start = SystemClock.uptimeMillis();
+            try {
+                delegate.execSQL(sql);
+            } finally {
+                logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+            long start = SystemClock.uptimeMillis();
+            try {
+                delegate.execSQL(sql, bindArgs);
+            } finally {
+                logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public void beginTransaction() {
+            delegate.beginTransaction();
+        }
+
+        @Override
+        public void beginTransactionNonExclusive() {
+            delegate.beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListener(transactionListener);
+        }
+
+        @Override
+        public void beginTransactionWithListenerNonExclusive(
+                SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+        }
+
+        @Override
+        public void endTransaction() {
+            delegate.endTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            delegate.setTransactionSuccessful();
+        }
+
+        @Override
+        public boolean inTransaction() {
+            return delegate.inTransaction();
+        }
+
+        @Override
+        public boolean isDbLockedByCurrentThread() {
+            return delegate.isDbLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely() {
+            return delegate.yieldIfContendedSafely();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) {
+            return delegate.yieldIfContendedSafely(sleepAfterYieldDelay);
+        }
+
+        @Override
+        public int getVersion() {
+            return delegate.getVersion();
+        }
+
+        @Override
+        public void setVersion(int version) {
+            delegate.setVersion(version);
+        }
+
+        @Override
+        public long getMaximumSize() {
+            return delegate.getMaximumSize();
+        }
+
+        @Override
+        public long setMaximumSize(long numBytes) {
+            return delegate.setMaximumSize(numBytes);
+        }
+
+        @Override
+        public long getPageSize() {
+            return delegate.getPageSize();
+        }
+
+        @Override
+        public void setPageSize(long numBytes) {
+            delegate.setPageSize(numBytes);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return delegate.isReadOnly();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean needUpgrade(int newVersion) {
+            return delegate.needUpgrade(newVersion);
+        }
+
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+            delegate.setLocale(locale);
+        }
+
+        @Override
+        public void setMaxSqlCacheSize(int cacheSize) {
+            delegate.setMaxSqlCacheSize(cacheSize);
+        }
+
+        @Override
+        public void setForeignKeyConstraintsEnabled(boolean enable) {
+            delegate.setForeignKeyConstraintsEnabled(enable);
+        }
+
+        @Override
+        public boolean enableWriteAheadLogging() {
+            return delegate.enableWriteAheadLogging();
+        }
+
+        @Override
+        public void disableWriteAheadLogging() {
+            delegate.disableWriteAheadLogging();
+        }
+
+        @Override
+        public boolean isWriteAheadLoggingEnabled() {
+            return delegate.isWriteAheadLoggingEnabled();
+        }
+
+        @Override
+        public List<Pair<String, String>> getAttachedDbs() {
+            return delegate.getAttachedDbs();
+        }
+
+        @Override
+        public boolean isDatabaseIntegrityOk() {
+            return delegate.isDatabaseIntegrityOk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Logs a slow query once it has run, which is when the cursor is first counted or moved.
+     */
+    private static class TimedCursor extends CursorWrapper {
+        private final String sql;
+        private final long startMillis;
+        private final TimedDatabase database;
+        private boolean ran;
+
+        TimedCursor(Cursor cursor, String sql, long startMillis, TimedDatabase database) {
+            super(cursor);
+            this.sql = sql;
+            this.startMillis = startMillis;
+            this.database = database;
+        }
+
+        private void onFirstRead() {
+            if (!ran) {
+                ran = true;
+                // runs the query, the cursor does it on its first move anyway
+                super.getCount();
+                database.logIfSlow(sql, startMillis);
+            }
+        }
+
+        @Override
+        public int getCount() {
+            onFirstRead();
+            return super.getCount();
+        }
+
+        @Override
+        public boolean move(int offset) {
+            onFirstRead();
+            return super.move(offset);
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            onFirstRead();
+            return super.moveToPosition(position);
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            onFirstRead();
+            return super.moveToFirst();
+        }
+
+        @Override
+        public boolean moveToLast() {
+            onFirstRead();
+            return super.moveToLast();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            onFirstRead();
+            return super.moveToNext();
+        }
+
+        @Override
+        public boolean moveToPrevious() {
+            onFirstRead();
+            return super.moveToPrevious();
+        }
+    }
+
+    private static class TimedStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement delegate;
+        private final String sql;
+        private final TimedDatabase database;
+
+        TimedStatement(SupportSQLiteStatement delegate, String sql, TimedDatabase database) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.database = database;
+        }
+
+        @Override
+        public void execute() {
+            long start = SystemClock.uptimeMillis();
+            try {
+                delegate.execute();
+            } finally {
+                database.logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.executeUpdateDelete();
+            } finally {
+                database.logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public long executeInsert() {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.executeInsert();
+            } finally {
+                database.logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.simpleQueryForLong();
+            } finally {
+                database.logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            long start = SystemClock.uptimeMillis();
+            try {
+                return delegate.simpleQueryForString();
+            } finally {
+                database.logIfSlow(sql, start);
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            delegate.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            delegate.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            delegate.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            delegate.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            delegate.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            delegate.clearBindings();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
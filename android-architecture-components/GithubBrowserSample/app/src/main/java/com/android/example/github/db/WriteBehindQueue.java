@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import timber.log.Timber;
+
+/**
+ * Coalesces database writes on the disk executor.
+ * <p>
+ * Writes that are enqueued within a short window are applied in a single transaction, so a screen
+ * that saves several responses at once only commits once. A write that replaces a pending write
+ * with the same key is applied instead of it, at its position; use keys that identify the rows a
+ * write replaces. Writes are opaque, so rows shared by writes with different keys are written by
+ * each of them, in order.
+ * <p>
+ * A write that fails does not take the others down: the batch is rolled back and its writes are
+ * applied again one transaction each, dropping only the ones that fail.
+ * <p>
+ * Since writes are deferred, readers that need to see them go through
+ * {@link #runAfterWrites(Runnable)}.
+ */
+@Singleton
+public class WriteBehindQueue {
+    private static final long WINDOW_MILLIS = 20;
+
+    private final AppExecutors appExecutors;
+
+    @Nullable
+    private final GithubDb db;
+
+    private final long windowMillis;
+
+    // guarded by this
+    private Map<Object, Write> pending = new LinkedHashMap<>();
+    private List<Runnable> barriers = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean flushing;
+    private long flushCount;
+    private long writeCount;
+    private long dedupedCount;
+    private long failedCount;
+
+    // held while a batch is applied so that batches never overlap
+    private final Object flushLock = new Object();
+
+    @Inject
+    public WriteBehindQueue(AppExecutors appExecutors, GithubDb db) {
+        this(appExecutors, db, WINDOW_MILLIS);
+    }
+
+    /**
+     * @param db           The database to open transactions on or {@code null} to apply writes
+     *                     without a transaction.
+     * @param windowMillis How long to wait for more writes once a write is enqueued. If 0, writes
+     *                     are only merged while the flush waits for the disk executor.
+     */
+    public WriteBehindQueue(AppExecutors appExecutors, @Nullable GithubDb db, long windowMillis) {
+        this.appExecutors = appExecutors;
+        this.db = db;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Applies the write in the next batch.
+     *
+     * @param key Identifies the rows the write replaces, or {@code null} if it should not replace
+     *            any pending write.
+     */
+    public void enqueue(@Nullable String key, @NonNull Write write) {
+        synchronized (this) {
+            Write replaced = pending.put(key == null ? new Object() : key, write);
+            if (replaced != null) {
+                dedupedCount++;
+            }
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Runs the task on the disk executor once every write enqueued so far is committed.
+     */
+    public void runAfterWrites(@NonNull Runnable task) {
+        boolean deferred;
+        synchronized (this) {
+            deferred = !pending.isEmpty() || flushing;
+            if (deferred) {
+                barriers.add(task);
+            }
+        }
+        if (deferred) {
+            scheduleFlush();
+        } else {
+            appExecutors.diskIO().execute(task);
+        }
+    }
+
+    private void scheduleFlush() {
+        synchronized (this) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        appExecutors.schedule(appExecutors.diskIO(), this::flush, windowMillis);
+    }
+
+    @WorkerThread
+    private void flush() {
+        synchronized (flushLock) {
+            Map<Object, Write> writes;
+            List<Runnable> tasks;
+            synchronized (this) {
+                writes = pending;
+                tasks = barriers;
+                pending = new LinkedHashMap<>();
+                barriers = new ArrayList<>();
+                flushScheduled = false;
+                flushing = true;
+            }
+            int failed = 0;
+            try {
+                if (!writes.isEmpty()) {
+                    failed = apply(writes.values());
+                }
+            } finally {
+                synchronized (this) {
+                    flushing = false;
+                    flushCount += writes.isEmpty() ? 0 : 1;
+                    writeCount += writes.size();
+                    failedCount += failed;
+                }
+                // readers wait for these writes whether they were committed or not
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of writes that failed and were dropped.
+     */
+    @WorkerThread
+    private int apply(Collection<Write> writes) {
+        // without a database the writes cannot be rolled back, they are isolated right away
+        if (db != null && writes.size() > 1) {
+            try {
+                applyInTransaction(writes);
+                return 0;
+            } catch (RuntimeException e) {
+                Timber.w(e, "batch of %d writes failed, applying them one by one", writes.size());
+            }
+        }
+        int failed = 0;
+        for (Write write : writes) {
+            try {
+                applyInTransaction(Collections.singletonList(write));
+            } catch (RuntimeException e) {
+                Timber.e(e, "dropping a write that failed");
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    @WorkerThread
+    private void applyInTransaction(Collection<Write> writes) {
+        if (db == null) {
+            for (Write write : writes) {
+                write.write();
+            }
+            return;
+        }
+        db.beginTransaction();
+        try {
+            for (Write write : writes) {
+                write.write();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    public synchronized long getDedupedCount() {
+        return dedupedCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WriteBehindQueue{" +
+                "pending=" + pending.size() +
+                ", flushes=" + flushCount +
+                ", writes=" + writeCount +
+                ", deduped=" + dedupedCount +
+                ", failed=" + failedCount +
+                '}';
+    }
+
+    public interface Write {
+        @WorkerThread
+        void write();
+    }
+}
@@ -19,34 +19,100 @@ package com.android.example.github.di;
 import android.app.Application;
 import android.arch.persistence.room.Room;
 
+import com.android.example.github.AppExecutors;
+import com.android.example.github.BuildConfig;
+import com.android.example.github.api.ApiQuota;
 import com.android.example.github.api.GithubService;
+import com.android.example.github.api.HttpClientConfig;
+import com.android.example.github.db.FetchedResourceDao;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.KeyedInvalidationTracker;
 import com.android.example.github.db.RepoDao;
+import com.android.example.github.db.RepoSearchIndex;
+import com.android.example.github.db.TunedOpenHelperFactory;
 import com.android.example.github.db.UserDao;
+import com.android.example.github.repository.RetryPolicy;
 import com.android.example.github.util.LiveDataCallAdapterFactory;
+import com.android.example.github.util.RepoSearchConverterFactory;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 @Module(includes = ViewModelModule.class)
 class AppModule {
+    @Provides
+    HttpClientConfig provideHttpClientConfig() {
+        return HttpClientConfig.defaults();
+    }
+
+    @Provides
+    RetryPolicy provideRetryPolicy() {
+        return RetryPolicy.defaults();
+    }
+
+    @Singleton @Provides
+    Cache provideHttpCache(Application app, HttpClientConfig config) {
+        return new Cache(new File(app.getCacheDir(), "http"), config.cacheSizeBytes);
+    }
+
+    /**
+     * The client shared by Retrofit and Glide so that they use the same disk cache and connection
+     * pool.
+     */
+    @Singleton @Provides
+    OkHttpClient provideOkHttpClient(Cache cache, HttpClientConfig config) {
+        return new OkHttpClient.Builder()
+                .cache(cache)
+                .connectionPool(new ConnectionPool(config.maxIdleConnections,
+                        config.keepAliveMillis, TimeUnit.MILLISECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(config.connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(config.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(config.writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     @Singleton @Provides
-    GithubService provideGithubService() {
+    GithubService provideGithubService(OkHttpClient client, ApiQuota apiQuota,
+            AppExecutors appExecutors) {
+        Gson gson = new Gson();
         return new Retrofit.Builder()
                 .baseUrl("https://api.github.com/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .addCallAdapterFactory(new LiveDataCallAdapterFactory())
+                // only API requests use the quota, not the images loaded with the same client
+                .client(client.newBuilder().addNetworkInterceptor(apiQuota).build())
+                // search pages are decoded from the stream, their repos are saved with the results
+                .addConverterFactory(new RepoSearchConverterFactory(gson))
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory(appExecutors))
                 .build()
                 .create(GithubService.class);
     }
 
     @Singleton @Provides
     GithubDb provideDb(Application app) {
-        return Room.databaseBuilder(app, GithubDb.class,"github.db").build();
+        // the database is only a cache of GitHub data, so we simply recreate it on schema changes
+        return Room.databaseBuilder(app, GithubDb.class,"github.db")
+                .fallbackToDestructiveMigration()
+                .addCallback(RepoSearchIndex.CALLBACK)
+                .addCallback(KeyedInvalidationTracker.CALLBACK)
+                // slow queries are only logged by debug builds, release builds skip the timing
+                .openHelperFactory(new TunedOpenHelperFactory(BuildConfig.DEBUG
+                        ? TunedOpenHelperFactory.DEFAULT_SLOW_QUERY_MILLIS
+                        : TunedOpenHelperFactory.NO_SLOW_QUERY_LOG))
+                .build();
     }
 
     @Singleton @Provides
@@ -58,4 +124,9 @@ class AppModule {
     RepoDao provideRepoDao(GithubDb db) {
         return db.repoDao();
     }
+
+    @Singleton @Provides
+    FetchedResourceDao provideFetchedResourceDao(GithubDb db) {
+        return db.fetchedResourceDao();
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor.Priority;
+import com.android.example.github.api.ApiQuota;
+import com.android.example.github.api.ApiResponse;
+import com.android.example.github.db.FetchedResourceDao;
+import com.android.example.github.db.WriteBehindQueue;
+import com.android.example.github.repository.FreshnessPolicy.Freshness;
+import com.android.example.github.vo.FetchedResource;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.util.ArrayMap;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Coordinates the network fetches of {@link NetworkBoundResource} instances.
+ * <p>
+ * Resources that provide a fetch key share a single in-flight request per key: the first one
+ * creates the call and saves its result, the others observe the same response and only reload
+ * from the database once it has been written. A request stops being shared once it has no active
+ * observers.
+ * <p>
+ * It also records when each keyed resource was fetched so that a {@link FreshnessPolicy} can
+ * decide whether cached data needs to be refreshed, and the validators used to make that refresh a
+ * conditional request. A {@code 304 Not Modified} response only bumps the fetch time.
+ * <p>
+ * Responses are saved through a {@link WriteBehindQueue}, keyed by the fetch key, so that responses
+ * received together are written in one transaction.
+ * <p>
+ * Stale data is considered fresh while the API quota is running low: refreshing it is a background
+ * request that can wait for the quota to be restored.
+ * <p>
+ * Failed calls are retried according to a {@link RetryPolicy} before the failure is dispatched.
+ */
+@Singleton
+public class FetchCoordinator {
+    private final AppExecutors appExecutors;
+
+    private final WriteBehindQueue writeQueue;
+
+    private final ApiQuota apiQuota;
+
+    private final RetryPolicy retryPolicy;
+
+    private final StageTimings stageTimings;
+
+    @Nullable
+    private final FetchedResourceDao fetchedResourceDao;
+
+    // only accessed on the main thread
+    private final Map<String, SavedFetch<?>> inFlight = new ArrayMap<>();
+
+    /**
+     * Creates a coordinator that does not track fetch times, hence treats all cached data as
+     * fresh.
+     */
+    public FetchCoordinator(AppExecutors appExecutors) {
+        this(appExecutors, null);
+    }
+
+    /**
+     * Creates a coordinator that saves each response as soon as the disk executor runs, without
+     * waiting for other responses, and does not retry failed calls.
+     */
+    public FetchCoordinator(AppExecutors appExecutors,
+            @Nullable FetchedResourceDao fetchedResourceDao) {
+        this(appExecutors, new WriteBehindQueue(appExecutors, null, 0), new ApiQuota(),
+                RetryPolicy.NONE, new StageTimings(), fetchedResourceDao);
+    }
+
+    @Inject
+    public FetchCoordinator(AppExecutors appExecutors, WriteBehindQueue writeQueue,
+            ApiQuota apiQuota, RetryPolicy retryPolicy, StageTimings stageTimings,
+            @Nullable FetchedResourceDao fetchedResourceDao) {
+        this.appExecutors = appExecutors;
+        this.writeQueue = writeQueue;
+        this.apiQuota = apiQuota;
+        this.retryPolicy = retryPolicy;
+        this.stageTimings = stageTimings;
+        this.fetchedResourceDao = fetchedResourceDao;
+    }
+
+    /**
+     * The histograms that the coordinated resources record the latency of their stages in.
+     */
+    StageTimings getStageTimings() {
+        return stageTimings;
+    }
+
+    /**
+     * Returns a LiveData that dispatches the response of the call once a successful response has
+     * been saved or a not modified response has been recorded. If there is already a fetch
+     * running for the given key, it is shared instead of creating a new call.
+     */
+    @MainThread
+    <T> LiveData<ApiResponse<T>> fetch(@Nullable String key, @NonNull CallFactory<T> callFactory,
+            @NonNull ResponseSaver<T> saver) {
+        if (key == null) {
+            return new SavedFetch<>(null, callFactory, saver);
+        }
+        //noinspection unchecked
+        SavedFetch<T> existing = (SavedFetch<T>) inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        SavedFetch<T> fetch = new SavedFetch<>(key, callFactory, saver);
+        inFlight.put(key, fetch);
+        return fetch;
+    }
+
+    /**
+     * Reads when the resource was last fetched and dispatches its freshness on the main thread,
+     * along with the stored fetch record if there is one. Pending writes are applied first.
+     */
+    @MainThread
+    void checkFreshness(@NonNull String key, @NonNull FreshnessPolicy policy,
+            @NonNull FreshnessCallback callback) {
+        if (fetchedResourceDao == null) {
+            callback.onFreshness(Freshness.FRESH, null);
+            return;
+        }
+        writeQueue.runAfterWrites(() -> {
+            FetchedResource fetched = fetchedResourceDao.find(key);
+            Freshness freshness = policy.freshness(
+                    fetched == null ? null : fetched.fetchedAt, now());
+            appExecutors.mainThread().execute(
+                    () -> callback.onFreshness(withQuota(key, freshness), fetched));
+        });
+    }
+
+    /**
+     * Only asks the quota for a refresh that would create a new call, joining a fetch that is
+     * already in flight is free.
+     */
+    @MainThread
+    private Freshness withQuota(String key, Freshness freshness) {
+        if (freshness == Freshness.STALE && !inFlight.containsKey(key)
+                && !apiQuota.core().tryAcquire(Priority.BACKGROUND)) {
+            return Freshness.FRESH;
+        }
+        return freshness;
+    }
+
+    @WorkerThread
+    private void markFetched(@Nullable String key, ApiResponse<?> response) {
+        if (key != null && fetchedResourceDao != null) {
+            fetchedResourceDao.insert(new FetchedResource(key, now(), response.etag,
+                    response.lastModified));
+        }
+    }
+
+    @WorkerThread
+    private void markNotModified(@Nullable String key) {
+        if (key != null && fetchedResourceDao != null) {
+            fetchedResourceDao.updateFetchedAt(key, now());
+        }
+    }
+
+    private long now() {
+        return System.currentTimeMillis();
+    }
+
+    @MainThread
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @MainThread
+    private void onComplete(@Nullable String key, SavedFetch<?> fetch) {
+        if (key != null && inFlight.get(key) == fetch) {
+            inFlight.remove(key);
+        }
+    }
+
+    interface CallFactory<T> {
+        @NonNull
+        @MainThread
+        LiveData<ApiResponse<T>> create();
+    }
+
+    interface ResponseSaver<T> {
+        @WorkerThread
+        void save(@NonNull ApiResponse<T> response);
+    }
+
+    interface FreshnessCallback {
+        @MainThread
+        void onFreshness(@NonNull Freshness freshness, @Nullable FetchedResource fetched);
+    }
+
+    /**
+     * Runs a call and, if it succeeds, saves the response through the write queue before
+     * dispatching it. Not modified responses are not saved since the database already has the data.
+     * Failed calls are created again after the delay given by the retry policy.
+     */
+    private class SavedFetch<T> extends MediatorLiveData<ApiResponse<T>> {
+        @Nullable
+        private final String key;
+        private final CallFactory<T> callFactory;
+        private final ResponseSaver<T> saver;
+        private int attempts;
+
+        SavedFetch(@Nullable String key, CallFactory<T> callFactory, ResponseSaver<T> saver) {
+            this.key = key;
+            this.callFactory = callFactory;
+            this.saver = saver;
+            attempt();
+        }
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            // the call is not observed anymore, a later fetch of the key must create a new one
+            onComplete(key, this);
+        }
+
+        @MainThread
+        private void attempt() {
+            attempts++;
+            LiveData<ApiResponse<T>> call = callFactory.create();
+            addSource(call, response -> {
+                removeSource(call);
+                //noinspection ConstantConditions
+                if (response.isSuccessful()) {
+                    writeQueue.enqueue(key, () -> {
+                        saver.save(response);
+                        markFetched(key, response);
+                    });
+                    dispatchAfterWrites(response);
+                } else if (response.isNotModified()) {
+                    // not keyed, it must not replace a pending save of the same resource
+                    writeQueue.enqueue(null, () -> markNotModified(key));
+                    dispatchAfterWrites(response);
+                } else {
+                    long delay = retryPolicy.retryDelayMillis(attempts, response, now());
+                    if (delay >= 0) {
+                        appExecutors.schedule(appExecutors.mainThread(), this::attempt, delay);
+                    } else {
+                        onComplete(key, this);
+                        setValue(response);
+                    }
+                }
+            });
+        }
+
+        private void dispatchAfterWrites(ApiResponse<T> response) {
+            writeQueue.runAfterWrites(() -> appExecutors.mainThread().execute(() -> {
+                onComplete(key, this);
+                setValue(response);
+            }));
+        }
+    }
+}
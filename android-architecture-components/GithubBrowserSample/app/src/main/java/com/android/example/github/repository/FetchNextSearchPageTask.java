@@ -16,78 +16,177 @@
 
 package com.android.example.github.repository;
 
+import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor;
+import com.android.example.github.PriorityExecutor.Priority;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
 import com.android.example.github.api.RepoSearchResponse;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.repository.StageTimings.ResourceType;
+import com.android.example.github.repository.StageTimings.Stage;
 import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 
 import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MutableLiveData;
+import android.support.annotation.Nullable;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
+import retrofit2.Call;
 import retrofit2.Response;
 
 /**
  * A task that reads the search result in the database and fetches the next page, if it has one.
+ * <p>
+ * The task is cancelled if its LiveData loses all of its observers before it completes: the call
+ * is cancelled and nothing is written to the database. If the executor rejects it, the task
+ * dispatches an error so that the page can be requested again.
+ * <p>
+ * Failed fetches are run again on the network executor after the delay given by the
+ * {@link RetryPolicy}; only the last failure is dispatched.
+ * <p>
+ * Stage timings are recorded as {@link ResourceType#SEARCH_NEXT_PAGE}, the total from the
+ * creation of the task, including the time it waits in the queue.
  */
-public class FetchNextSearchPageTask implements Runnable {
-    private final MutableLiveData<Resource<Boolean>> liveData = new MutableLiveData<>();
+public class FetchNextSearchPageTask implements PriorityExecutor.Rejectable {
+    private final MutableLiveData<Resource<Boolean>> liveData =
+            new MutableLiveData<Resource<Boolean>>() {
+                @Override
+                protected void onInactive() {
+                    if (!hasObservers()) {
+                        cancel();
+                    }
+                }
+            };
     private final String query;
     private final GithubService githubService;
     private final GithubDb db;
+    private final AppExecutors appExecutors;
+    private final Priority priority;
+    private final RetryPolicy retryPolicy;
+    private final StageTimings stageTimings;
+    private final long createdAt = System.nanoTime();
+    // only accessed by the running attempt
+    private int attempts;
+    private volatile boolean cancelled;
+    @Nullable
+    private volatile Call<RepoSearchResponse> call;
 
-    FetchNextSearchPageTask(String query, GithubService githubService, GithubDb db) {
+    FetchNextSearchPageTask(String query, GithubService githubService, GithubDb db,
+            AppExecutors appExecutors, Priority priority, RetryPolicy retryPolicy,
+            StageTimings stageTimings) {
         this.query = query;
         this.githubService = githubService;
         this.db = db;
+        this.appExecutors = appExecutors;
+        this.priority = priority;
+        this.retryPolicy = retryPolicy;
+        this.stageTimings = stageTimings;
     }
 
     @Override
     public void run() {
+        if (cancelled) {
+            return;
+        }
+        attempts++;
+        long start = System.nanoTime();
         RepoSearchResult current = db.repoDao().findSearchResult(query);
+        record(Stage.LOAD_FROM_DB, start);
         if(current == null) {
             liveData.postValue(null);
             return;
         }
         final Integer nextPage = current.next;
         if (nextPage == null) {
-            liveData.postValue(Resource.success(false));
+            complete(Resource.success(false));
             return;
         }
         try {
-            Response<RepoSearchResponse> response = githubService
-                    .searchRepos(query, nextPage).execute();
+            Call<RepoSearchResponse> call = githubService.searchRepos(query, nextPage);
+            this.call = call;
+            if (cancelled) {
+                return;
+            }
+            start = System.nanoTime();
+            Response<RepoSearchResponse> response = call.execute();
+            record(Stage.NETWORK, start);
             ApiResponse<RepoSearchResponse> apiResponse = new ApiResponse<>(response);
+            if (cancelled) {
+                return;
+            }
             if (apiResponse.isSuccessful()) {
-                // we merge all repo ids into 1 list so that it is easier to fetch the result list.
-                List<Integer> ids = new ArrayList<>();
-                ids.addAll(current.repoIds);
                 //noinspection ConstantConditions
-                ids.addAll(apiResponse.body.getRepoIds());
-                RepoSearchResult merged = new RepoSearchResult(query, ids,
-                        apiResponse.body.getTotal(), apiResponse.getNextPage());
+                int[] repoIds = apiResponse.body.getRepoIds();
+                RepoSearchResult merged = new RepoSearchResult(query,
+                        current.itemCount + repoIds.length, apiResponse.body.getTotal(),
+                        apiResponse.getNextPage());
+                start = System.nanoTime();
                 try {
                     db.beginTransaction();
-                    db.repoDao().insert(merged);
                     db.repoDao().insertRepos(apiResponse.body.getItems());
+                    // only this page's rows are added, after the ones we already have
+                    db.repoDao().insertSearchResultItems(query, current.itemCount, repoIds);
+                    db.repoDao().insert(merged);
                     db.setTransactionSuccessful();
                 } finally {
                     db.endTransaction();
                 }
-                liveData.postValue(Resource.success(apiResponse.getNextPage() != null));
+                record(Stage.SAVE_CALL_RESULT, start);
+                complete(Resource.success(apiResponse.getNextPage() != null));
             } else {
-                liveData.postValue(Resource.error(apiResponse.errorMessage, true));
+                onFailure(apiResponse);
             }
         } catch (IOException e) {
-            liveData.postValue(Resource.error(e.getMessage(), true));
+            if (!cancelled) {
+                onFailure(new ApiResponse<>(e));
+            }
+        }
+    }
+
+    private void onFailure(ApiResponse<RepoSearchResponse> response) {
+        long delay = retryPolicy.retryDelayMillis(attempts, response, System.currentTimeMillis());
+        if (delay >= 0) {
+            appExecutors.schedule(appExecutors.networkIO(priority), this, delay);
+        } else {
+            complete(Resource.error(response.errorMessage, true));
+        }
+    }
+
+    private void complete(Resource<Boolean> result) {
+        record(Stage.TOTAL, createdAt);
+        liveData.postValue(result);
+    }
+
+    private void record(Stage stage, long startNanos) {
+        stageTimings.recordElapsed(ResourceType.SEARCH_NEXT_PAGE, stage, startNanos);
+    }
+
+    @Override
+    public void onRejected() {
+        if (!cancelled) {
+            liveData.postValue(Resource.error("too many pending requests", true));
+        }
+    }
+
+    /**
+     * Cancels the network call if it is running. A page that has already been received may still
+     * be written.
+     */
+    void cancel() {
+        cancelled = true;
+        Call<RepoSearchResponse> call = this.call;
+        if (call != null) {
+            call.cancel();
         }
     }
 
+    boolean isCancelled() {
+        return cancelled;
+    }
+
     LiveData<Resource<Boolean>> getLiveData() {
         return liveData;
     }
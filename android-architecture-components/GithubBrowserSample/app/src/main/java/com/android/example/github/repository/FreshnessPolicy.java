@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether cached data of a {@link NetworkBoundResource} should be refreshed based on when
+ * it was last fetched.
+ * <p>
+ * Data younger than {@code maxAge} is fresh and served from the database. After that, it is
+ * served but revalidated in the background for {@code staleWhileRevalidate} more. Older data is
+ * refetched the same way as missing data.
+ */
+public class FreshnessPolicy {
+    public enum Freshness {
+        FRESH,
+        STALE,
+        EXPIRED
+    }
+
+    private final long maxAge;
+
+    private final long staleWhileRevalidate;
+
+    public FreshnessPolicy(long maxAge, long staleWhileRevalidate, TimeUnit timeUnit) {
+        this.maxAge = timeUnit.toMillis(maxAge);
+        this.staleWhileRevalidate = timeUnit.toMillis(staleWhileRevalidate);
+    }
+
+    /**
+     * @param fetchedAt When the data was fetched or {@code null} if it is not known, e.g. the row
+     *                  was written by another resource.
+     * @param now       The current time in milliseconds.
+     */
+    @NonNull
+    public Freshness freshness(@Nullable Long fetchedAt, long now) {
+        if (fetchedAt == null) {
+            return Freshness.STALE;
+        }
+        long age = now - fetchedAt;
+        if (age < 0) {
+            // clock moved backwards, we cannot trust the timestamp
+            return Freshness.STALE;
+        }
+        if (age <= maxAge) {
+            return Freshness.FRESH;
+        }
+        if (age <= maxAge + staleWhileRevalidate) {
+            return Freshness.STALE;
+        }
+        return Freshness.EXPIRED;
+    }
+}
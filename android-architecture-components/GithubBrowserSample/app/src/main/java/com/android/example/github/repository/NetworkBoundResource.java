@@ -16,73 +16,173 @@
 
 package com.android.example.github.repository;
 
-import com.android.example.github.AppExecutors;
 import com.android.example.github.api.ApiResponse;
+import com.android.example.github.repository.StageTimings.ResourceType;
+import com.android.example.github.repository.StageTimings.Stage;
 import com.android.example.github.util.Objects;
+import com.android.example.github.vo.FetchedResource;
 import com.android.example.github.vo.Resource;
 import com.android.example.github.vo.Status;
 
 import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.Observer;
 import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
 
+import java.util.Collections;
+import java.util.Map;
+
+import timber.log.Timber;
+
 /**
  * A generic class that can provide a resource backed by both the sqlite database and the network.
  * <p>
  * You can read more about it in the <a href="https://developer.android.com/arch">Architecture
  * Guide</a>.
+ * <p>
+ * Resources that return a {@link #resourceType()} record how long each of their stages takes in
+ * the {@link StageTimings} of their coordinator.
  * @param <ResultType>
  * @param <RequestType>
  */
 public abstract class NetworkBoundResource<ResultType, RequestType> {
-    private final AppExecutors appExecutors;
+    private final FetchCoordinator fetchCoordinator;
 
     private final MediatorLiveData<Resource<ResultType>> result = new MediatorLiveData<>();
 
+    // validators of the cached data, set when it is being refreshed
+    @Nullable
+    private FetchedResource cached;
+
+    private final long createdAt = System.nanoTime();
+
+    private boolean completed;
+
     @MainThread
-    NetworkBoundResource(AppExecutors appExecutors) {
-        this.appExecutors = appExecutors;
-        result.setValue(Resource.loading(null));
+    NetworkBoundResource(FetchCoordinator fetchCoordinator) {
+        this.fetchCoordinator = fetchCoordinator;
+        // cached data is shown right away, the database then confirms or replaces it
+        result.setValue(Resource.loading(loadFromCache()));
         LiveData<ResultType> dbSource = loadFromDb();
         result.addSource(dbSource, data -> {
             result.removeSource(dbSource);
+            record(Stage.LOAD_FROM_DB, createdAt);
             if (shouldFetch(data)) {
-                fetchFromNetwork(dbSource);
+                fetchFromNetwork(dbSource, false);
             } else {
-                result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+                checkFreshness(dbSource);
+            }
+        });
+    }
+
+    @MainThread
+    private void checkFreshness(final LiveData<ResultType> dbSource) {
+        FreshnessPolicy policy = freshnessPolicy();
+        String key = fetchKey();
+        if (policy == null || key == null) {
+            result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+            return;
+        }
+        fetchCoordinator.checkFreshness(key, policy, (freshness, fetched) -> {
+            cached = fetched;
+            switch (freshness) {
+                case FRESH:
+                    result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+                    break;
+                case STALE:
+                    fetchFromNetwork(dbSource, true);
+                    break;
+                case EXPIRED:
+                    fetchFromNetwork(dbSource, false);
+                    break;
             }
         });
     }
 
     @MainThread
     private void setValue(Resource<ResultType> newValue) {
+        if (!completed && newValue.status != Status.LOADING) {
+            completed = true;
+            record(Stage.TOTAL, createdAt);
+        }
         if (!Objects.equals(result.getValue(), newValue)) {
             result.setValue(newValue);
         }
     }
 
-    private void fetchFromNetwork(final LiveData<ResultType> dbSource) {
-        LiveData<ApiResponse<RequestType>> apiResponse = createCall();
+    private void record(Stage stage, long startNanos) {
+        ResourceType type = resourceType();
+        if (type != null) {
+            fetchCoordinator.getStageTimings().recordElapsed(type, stage, startNanos);
+        }
+    }
+
+    @MainThread
+    private LiveData<ApiResponse<RequestType>> createTimedCall() {
+        long start = System.nanoTime();
+        LiveData<ApiResponse<RequestType>> call = createCall();
+        MediatorLiveData<ApiResponse<RequestType>> timed = new MediatorLiveData<>();
+        timed.addSource(call, response -> {
+            record(Stage.NETWORK, start);
+            timed.setValue(response);
+        });
+        return timed;
+    }
+
+    @WorkerThread
+    private void processAndSave(ApiResponse<RequestType> response) {
+        long start = System.nanoTime();
+        RequestType item = processResponse(response);
+        record(Stage.PROCESS_RESPONSE, start);
+        start = System.nanoTime();
+        saveCallResult(item);
+        record(Stage.SAVE_CALL_RESULT, start);
+    }
+
+    /**
+     * @param revalidate If true, cached data keeps being served as a success while the fetch runs
+     *                   and a failed fetch is not reported to the UI.
+     */
+    private void fetchFromNetwork(final LiveData<ResultType> dbSource, boolean revalidate) {
+        // successful responses are dispatched only after they are saved. If another resource is
+        // already fetching the same key, we share its response and it takes care of saving it.
+        LiveData<ApiResponse<RequestType>> apiResponse = fetchCoordinator.fetch(fetchKey(),
+                this::createTimedCall, this::processAndSave);
         // we re-attach dbSource as a new source, it will dispatch its latest value quickly
-        result.addSource(dbSource, newData -> setValue(Resource.loading(newData)));
+        result.addSource(dbSource, newData -> setValue(revalidate
+                ? Resource.success(newData) : Resource.loading(newData)));
         result.addSource(apiResponse, response -> {
             result.removeSource(apiResponse);
             result.removeSource(dbSource);
             //noinspection ConstantConditions
             if (response.isSuccessful()) {
-                appExecutors.diskIO().execute(() -> {
-                    saveCallResult(processResponse(response));
-                    appExecutors.mainThread().execute(() ->
-                            // we specially request a new live data,
-                            // otherwise we will get immediately last cached value,
-                            // which may not be updated with latest results received from network.
-                            result.addSource(loadFromDb(),
-                                    newData -> setValue(Resource.success(newData)))
-                    );
+                // we specially request a new live data,
+                // otherwise we will get immediately last cached value,
+                // which may not be updated with latest results received from network.
+                long reloadStart = System.nanoTime();
+                LiveData<ResultType> reloaded = loadFromDb();
+                result.addSource(reloaded, new Observer<ResultType>() {
+                    private boolean first = true;
+
+                    @Override
+                    public void onChanged(@Nullable ResultType newData) {
+                        if (first) {
+                            first = false;
+                            record(Stage.RELOAD, reloadStart);
+                        }
+                        setValue(Resource.success(newData));
+                    }
                 });
+            } else if (response.isNotModified()) {
+                // nothing was written, the data we have is up to date
+                result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+            } else if (revalidate) {
+                onFetchFailed();
+                Timber.w("could not revalidate %s: %s", fetchKey(), response.errorMessage);
+                result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
             } else {
                 onFetchFailed();
                 result.addSource(dbSource,
@@ -98,6 +198,58 @@ public abstract class NetworkBoundResource<ResultType, RequestType> {
         return result;
     }
 
+    /**
+     * Identifies the remote resource (endpoint and arguments) fetched by this instance. Concurrent
+     * resources with the same key share a single network request and a single write.
+     *
+     * @return The key of the fetched resource or {@code null} if fetches should not be shared.
+     */
+    @Nullable
+    protected String fetchKey() {
+        return null;
+    }
+
+    /**
+     * @return The type the stage timings of this resource are recorded under or {@code null} to
+     * not record them.
+     */
+    @Nullable
+    protected ResourceType resourceType() {
+        return null;
+    }
+
+    /**
+     * Decides when cached data is refreshed once {@link #shouldFetch(Object)} returned
+     * {@code false}. Requires a {@link #fetchKey()} to look up when the data was fetched.
+     *
+     * @return The freshness policy or {@code null} to always serve cached data.
+     */
+    @Nullable
+    protected FreshnessPolicy freshnessPolicy() {
+        return null;
+    }
+
+    /**
+     * Headers that make the call conditional on the cached data having changed, to be passed to
+     * the {@link com.android.example.github.api.GithubService} in {@link #createCall()}.
+     * <p>
+     * The map is empty unless cached data is being refreshed.
+     */
+    @NonNull
+    @MainThread
+    protected Map<String, String> conditionalHeaders() {
+        if (cached == null) {
+            return Collections.emptyMap();
+        }
+        if (cached.etag != null) {
+            return Collections.singletonMap("If-None-Match", cached.etag);
+        }
+        if (cached.lastModified != null) {
+            return Collections.singletonMap("If-Modified-Since", cached.lastModified);
+        }
+        return Collections.emptyMap();
+    }
+
     @WorkerThread
     protected RequestType processResponse(ApiResponse<RequestType> response) {
         return response.body;
@@ -113,6 +265,16 @@ public abstract class NetworkBoundResource<ResultType, RequestType> {
     @MainThread
     protected abstract LiveData<ResultType> loadFromDb();
 
+    /**
+     * Returns data that can be displayed while {@link #loadFromDb()} runs its query, e.g. from an
+     * in memory cache.
+     */
+    @Nullable
+    @MainThread
+    protected ResultType loadFromCache() {
+        return null;
+    }
+
     @NonNull
     @MainThread
     protected abstract LiveData<ApiResponse<RequestType>> createCall();
@@ -17,24 +17,39 @@
 package com.android.example.github.repository;
 
 import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor.Priority;
+import com.android.example.github.api.ApiQuota;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
 import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.db.CacheEvictor;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.GithubDbCache;
+import com.android.example.github.db.KeyedInvalidationTracker;
+import com.android.example.github.db.OwnerRepoDataSourceFactory;
 import com.android.example.github.db.RepoDao;
+import com.android.example.github.db.RepoSearchIndex;
+import com.android.example.github.repository.StageTimings.ResourceType;
 import com.android.example.github.util.AbsentLiveData;
-import com.android.example.github.util.RateLimiter;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Transformations;
+import android.arch.paging.LivePagedListBuilder;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -52,6 +67,21 @@ import timber.log.Timber;
 @Singleton
 public class RepoRepository {
 
+    private static final FreshnessPolicy REPO_LIST_FRESHNESS = new FreshnessPolicy(
+            10, 50, TimeUnit.MINUTES);
+
+    private static final FreshnessPolicy REPO_FRESHNESS = new FreshnessPolicy(
+            1, 23, TimeUnit.HOURS);
+
+    private static final int MAX_CACHED_SEARCH_RESULTS = 100;
+
+    private static final PagedList.Config OWNER_REPOS_PAGED_LIST_CONFIG =
+            new PagedList.Config.Builder()
+                    .setPageSize(30)
+                    .setPrefetchDistance(30)
+                    .setEnablePlaceholders(false)
+                    .build();
+
     private final GithubDb db;
 
     private final RepoDao repoDao;
@@ -60,50 +90,101 @@ public class RepoRepository {
 
     private final AppExecutors appExecutors;
 
-    private RateLimiter<String> repoListRateLimit = new RateLimiter<>(10, TimeUnit.MINUTES);
+    private final FetchCoordinator fetchCoordinator;
+
+    private final GithubDbCache dbCache;
+
+    private final ApiQuota apiQuota;
+
+    private final RetryPolicy retryPolicy;
+
+    private final RepoSearchIndex searchIndex;
+
+    private final CacheEvictor cacheEvictor;
+
+    private final KeyedInvalidationTracker invalidationTracker;
 
     @Inject
     public RepoRepository(AppExecutors appExecutors, GithubDb db, RepoDao repoDao,
-            GithubService githubService) {
+            GithubService githubService, FetchCoordinator fetchCoordinator,
+            GithubDbCache dbCache, ApiQuota apiQuota, RetryPolicy retryPolicy,
+            RepoSearchIndex searchIndex, CacheEvictor cacheEvictor,
+            KeyedInvalidationTracker invalidationTracker) {
         this.db = db;
         this.repoDao = repoDao;
         this.githubService = githubService;
         this.appExecutors = appExecutors;
+        this.fetchCoordinator = fetchCoordinator;
+        this.dbCache = dbCache;
+        this.apiQuota = apiQuota;
+        this.retryPolicy = retryPolicy;
+        this.searchIndex = searchIndex;
+        this.cacheEvictor = cacheEvictor;
+        this.invalidationTracker = invalidationTracker;
     }
 
-    public LiveData<Resource<List<Repo>>> loadRepos(String owner) {
-        return new NetworkBoundResource<List<Repo>, List<Repo>>(appExecutors) {
+    /**
+     * Fetches the repos of the owner when there are none or they are stale. The result only holds
+     * how many repos are saved: they are read by {@link #loadReposPaged(String)}.
+     */
+    public LiveData<Resource<Integer>> refreshRepos(String owner) {
+        return new NetworkBoundResource<Integer, List<Repo>>(fetchCoordinator) {
             @Override
             protected void saveCallResult(@NonNull List<Repo> item) {
                 repoDao.insertRepos(item);
             }
 
             @Override
-            protected boolean shouldFetch(@Nullable List<Repo> data) {
-                return data == null || data.isEmpty() || repoListRateLimit.shouldFetch(owner);
+            protected boolean shouldFetch(@Nullable Integer data) {
+                return data == null || data == 0;
             }
 
-            @NonNull
             @Override
-            protected LiveData<List<Repo>> loadFromDb() {
-                return repoDao.loadRepositories(owner);
+            protected FreshnessPolicy freshnessPolicy() {
+                return REPO_LIST_FRESHNESS;
             }
 
             @NonNull
             @Override
-            protected LiveData<ApiResponse<List<Repo>>> createCall() {
-                return githubService.getRepos(owner);
+            protected LiveData<Integer> loadFromDb() {
+                // counted from the owner index, unlike the list it is cheap to read on each write
+                return invalidationTracker.createLiveData(new String[]{"repo"}, owner,
+                        () -> repoDao.countRepositories(owner));
             }
 
             @Override
-            protected void onFetchFailed() {
-                repoListRateLimit.reset(owner);
+            protected ResourceType resourceType() {
+                return ResourceType.REPOS;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "users/" + owner + "/repos";
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<ApiResponse<List<Repo>>> createCall() {
+                return githubService.getRepos(owner, conditionalHeaders());
             }
         }.asLiveData();
     }
 
+    /**
+     * Returns the repos of the owner, sorted by stars, as a paged list read from the database.
+     * It does not fetch them, see {@link #refreshRepos(String)}, and it is only reloaded when a
+     * repo of the owner changes.
+     */
+    public LiveData<PagedList<Repo>> loadReposPaged(String owner) {
+        return new LivePagedListBuilder<>(
+                new OwnerRepoDataSourceFactory(db, invalidationTracker, owner),
+                OWNER_REPOS_PAGED_LIST_CONFIG)
+                .setBackgroundThreadExecutor(appExecutors.diskRead())
+                .build();
+    }
+
     public LiveData<Resource<Repo>> loadRepo(String owner, String name) {
-        return new NetworkBoundResource<Repo, Repo>(appExecutors) {
+        return new NetworkBoundResource<Repo, Repo>(fetchCoordinator) {
             @Override
             protected void saveCallResult(@NonNull Repo item) {
                 repoDao.insert(item);
@@ -114,22 +195,44 @@ public class RepoRepository {
                 return data == null;
             }
 
+            @Override
+            protected FreshnessPolicy freshnessPolicy() {
+                return REPO_FRESHNESS;
+            }
+
             @NonNull
             @Override
             protected LiveData<Repo> loadFromDb() {
-                return repoDao.load(owner, name);
+                String key = GithubDbCache.repoKey(owner, name);
+                return dbCache.repos().track(key, invalidationTracker.createLiveData(
+                        new String[]{"repo"}, key, () -> repoDao.findRepo(owner, name)));
+            }
+
+            @Override
+            protected Repo loadFromCache() {
+                return dbCache.repos().get(GithubDbCache.repoKey(owner, name));
+            }
+
+            @Override
+            protected ResourceType resourceType() {
+                return ResourceType.REPO;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "repos/" + owner + "/" + name;
             }
 
             @NonNull
             @Override
             protected LiveData<ApiResponse<Repo>> createCall() {
-                return githubService.getRepo(owner, name);
+                return githubService.getRepo(owner, name, conditionalHeaders());
             }
         }.asLiveData();
     }
 
     public LiveData<Resource<List<Contributor>>> loadContributors(String owner, String name) {
-        return new NetworkBoundResource<List<Contributor>, List<Contributor>>(appExecutors) {
+        return new NetworkBoundResource<List<Contributor>, List<Contributor>>(fetchCoordinator) {
             @Override
             protected void saveCallResult(@NonNull List<Contributor> contributors) {
                 for (Contributor contributor : contributors) {
@@ -155,43 +258,246 @@ public class RepoRepository {
                 return data == null || data.isEmpty();
             }
 
+            @Override
+            protected FreshnessPolicy freshnessPolicy() {
+                return REPO_FRESHNESS;
+            }
+
             @NonNull
             @Override
             protected LiveData<List<Contributor>> loadFromDb() {
-                return repoDao.loadContributors(owner, name);
+                String key = GithubDbCache.repoKey(owner, name);
+                return dbCache.contributors().track(key, invalidationTracker.createLiveData(
+                        new String[]{"contributor"}, key,
+                        () -> repoDao.findContributors(owner, name)));
+            }
+
+            @Override
+            protected List<Contributor> loadFromCache() {
+                return dbCache.contributors().get(GithubDbCache.repoKey(owner, name));
+            }
+
+            @Override
+            protected ResourceType resourceType() {
+                return ResourceType.CONTRIBUTORS;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "repos/" + owner + "/" + name + "/contributors";
             }
 
             @NonNull
             @Override
             protected LiveData<ApiResponse<List<Contributor>>> createCall() {
-                return githubService.getContributors(owner, name);
+                return githubService.getContributors(owner, name, conditionalHeaders());
+            }
+        }.asLiveData();
+    }
+
+    /**
+     * Loads a repo with its contributors. Both are fetched in parallel, saved in one transaction
+     * and read back in one statement so that they are dispatched together.
+     * <p>
+     * They are fetched when missing and refreshed as often as a repo. There is no single validator
+     * for both responses, so a refresh is not a conditional request.
+     */
+    public LiveData<Resource<RepoDetails>> loadRepoDetails(String owner, String name) {
+        String key = GithubDbCache.repoKey(owner, name);
+        return new NetworkBoundResource<RepoDetails, RepoDetails>(fetchCoordinator) {
+            @Override
+            protected void saveCallResult(@NonNull RepoDetails item) {
+                for (Contributor contributor : item.contributors) {
+                    contributor.setRepoName(name);
+                    contributor.setRepoOwner(owner);
+                }
+                db.beginTransaction();
+                try {
+                    if (item.repo != null) {
+                        repoDao.insert(item.repo);
+                    }
+                    repoDao.insertContributors(item.contributors);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable RepoDetails data) {
+                return data == null || data.repo == null || data.contributors.isEmpty();
+            }
+
+            @Override
+            protected FreshnessPolicy freshnessPolicy() {
+                return REPO_FRESHNESS;
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<RepoDetails> loadFromDb() {
+                return invalidationTracker.createLiveData(
+                        new String[]{"repo", "contributor"}, key, () -> {
+                            RepoDetails details = repoDao.findRepoDetails(owner, name);
+                            dbCache.repos().put(key, details.repo);
+                            dbCache.contributors().put(key, details.contributors);
+                            return details;
+                        });
+            }
+
+            @Override
+            protected RepoDetails loadFromCache() {
+                Repo repo = dbCache.repos().get(key);
+                List<Contributor> contributors = dbCache.contributors().get(key);
+                return repo == null || contributors == null ? null
+                        : new RepoDetails(repo, contributors);
+            }
+
+            @Override
+            protected ResourceType resourceType() {
+                return ResourceType.REPO_DETAILS;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "repos/" + owner + "/" + name + "/details";
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<ApiResponse<RepoDetails>> createCall() {
+                return new RepoDetailsCall(
+                        githubService.getRepo(owner, name, Collections.emptyMap()),
+                        githubService.getContributors(owner, name, Collections.emptyMap()));
             }
         }.asLiveData();
     }
 
     public LiveData<Resource<Boolean>> searchNextPage(String query) {
+        return searchNextPage(query, Priority.USER_VISIBLE);
+    }
+
+    /**
+     * Fetches the next search page with the given priority. If the fetch is rejected because the
+     * network queue is full or the search quota is running low, the returned LiveData dispatches an
+     * error.
+     */
+    public LiveData<Resource<Boolean>> searchNextPage(String query, Priority priority) {
+        if (!apiQuota.search().tryAcquire(priority)) {
+            MutableLiveData<Resource<Boolean>> shed = new MutableLiveData<>();
+            shed.setValue(Resource.error("search rate limit is running low", true));
+            return shed;
+        }
         FetchNextSearchPageTask fetchNextSearchPageTask = new FetchNextSearchPageTask(
-                query, githubService, db);
-        appExecutors.networkIO().execute(fetchNextSearchPageTask);
+                query, githubService, db, appExecutors, priority, retryPolicy,
+                fetchCoordinator.getStageTimings());
+        appExecutors.networkIO(priority).execute(fetchNextSearchPageTask);
         return fetchNextSearchPageTask.getLiveData();
     }
 
+    /**
+     * Returns the search results as a paged list read from the database. Only the first page is
+     * fetched by {@link #search(String)}: the boundary callback is told when the list runs out of
+     * rows, e.g. to fetch the next one with {@link #searchNextPage(String, Priority)}.
+     *
+     * @param prefetchDistance How many rows before the end of the loaded rows the boundary
+     *                         callback is called.
+     */
+    public LiveData<PagedList<Repo>> searchPaged(String query, int prefetchDistance,
+            PagedList.BoundaryCallback<Repo> boundaryCallback) {
+        PagedList.Config config = new PagedList.Config.Builder()
+                // GitHub returns search results in pages of 30
+                .setPageSize(30)
+                // the paging library needs to load ahead by at least a row
+                .setPrefetchDistance(Math.max(1, prefetchDistance))
+                .setEnablePlaceholders(false)
+                .build();
+        return new LivePagedListBuilder<>(repoDao.loadPagedSearchResults(query), config)
+                .setBoundaryCallback(boundaryCallback)
+                .setBackgroundThreadExecutor(appExecutors.diskRead())
+                .build();
+    }
+
+    /**
+     * Searches the repos in the database, or returns {@code null} if none match.
+     * <p>
+     * If a query that is a prefix of the given one was searched on GitHub, its cached results are
+     * returned, filtered to the repos that match the query. Otherwise the full-text index of all
+     * cached repos is searched.
+     * <p>
+     * This only reads the database, it is meant to be shown while {@link #search(String)} runs or
+     * when it fails.
+     */
+    public LiveData<List<Repo>> searchCached(String query) {
+        MutableLiveData<List<Repo>> result = new MutableLiveData<>();
+        appExecutors.diskIO().execute(() -> {
+            List<Repo> repos = null;
+            RepoSearchResult cached = repoDao.findLongestPrefixSearchResult(query);
+            if (cached != null) {
+                repos = repoDao.findSearchResults(cached.query);
+                if (!cached.query.equals(query)) {
+                    repos = filter(repos, query);
+                }
+            }
+            if (repos == null || repos.isEmpty()) {
+                repos = searchIndex.search(query, MAX_CACHED_SEARCH_RESULTS);
+            }
+            result.postValue(repos.isEmpty() ? null : repos);
+        });
+        return result;
+    }
+
+    /**
+     * Keeps the repos whose name or description contains every word of the query. Search
+     * qualifiers, e.g. {@code language:java}, are ignored since the repos do not have the data.
+     */
+    static List<Repo> filter(List<Repo> repos, String query) {
+        List<String> words = new ArrayList<>();
+        for (String word : query.toLowerCase(Locale.US).split("\\s+")) {
+            if (word.length() != 0 && word.indexOf(':') < 0) {
+                words.add(word);
+            }
+        }
+        List<Repo> matches = new ArrayList<>();
+        for (Repo repo : repos) {
+            String description = repo.description == null ? "" : repo.description;
+            String text = (repo.fullName + " " + description).toLowerCase(Locale.US);
+            boolean match = true;
+            for (String word : words) {
+                if (!text.contains(word)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                matches.add(repo);
+            }
+        }
+        return matches;
+    }
+
     public LiveData<Resource<List<Repo>>> search(String query) {
-        return new NetworkBoundResource<List<Repo>, RepoSearchResponse>(appExecutors) {
+        cacheEvictor.onSearchAccessed(query);
+        return new NetworkBoundResource<List<Repo>, RepoSearchResponse>(fetchCoordinator) {
 
             @Override
             protected void saveCallResult(@NonNull RepoSearchResponse item) {
-                List<Integer> repoIds = item.getRepoIds();
+                int[] repoIds = item.getRepoIds();
                 RepoSearchResult repoSearchResult = new RepoSearchResult(
-                        query, repoIds, item.getTotal(), item.getNextPage());
+                        query, repoIds.length, item.getTotal(), item.getNextPage());
                 db.beginTransaction();
                 try {
                     repoDao.insertRepos(item.getItems());
+                    // this is the first page, it replaces the results we had for this query
+                    repoDao.deleteSearchResultItems(query);
+                    repoDao.insertSearchResultItems(query, 0, repoIds);
                     repoDao.insert(repoSearchResult);
                     db.setTransactionSuccessful();
                 } finally {
                     db.endTransaction();
                 }
+                // every new search grows the cache
+                cacheEvictor.evictInBackground();
             }
 
             @Override
@@ -206,11 +512,21 @@ public class RepoRepository {
                     if (searchData == null) {
                         return AbsentLiveData.create();
                     } else {
-                        return repoDao.loadOrdered(searchData.repoIds);
+                        return repoDao.loadSearchResults(query);
                     }
                 });
             }
 
+            @Override
+            protected ResourceType resourceType() {
+                return ResourceType.SEARCH;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "search/repositories?q=" + query;
+            }
+
             @NonNull
             @Override
             protected LiveData<ApiResponse<RepoSearchResponse>> createCall() {
@@ -227,4 +543,41 @@ public class RepoRepository {
             }
         }.asLiveData();
     }
+
+    /**
+     * Combines the repo and contributors calls, which both start when it becomes active. Once
+     * both responded it dispatches their details, or the first failed response.
+     */
+    private static class RepoDetailsCall extends MediatorLiveData<ApiResponse<RepoDetails>> {
+        private ApiResponse<Repo> repo;
+        private ApiResponse<List<Contributor>> contributors;
+
+        RepoDetailsCall(LiveData<ApiResponse<Repo>> repoCall,
+                LiveData<ApiResponse<List<Contributor>>> contributorsCall) {
+            addSource(repoCall, response -> {
+                removeSource(repoCall);
+                repo = response;
+                dispatchIfComplete();
+            });
+            addSource(contributorsCall, response -> {
+                removeSource(contributorsCall);
+                contributors = response;
+                dispatchIfComplete();
+            });
+        }
+
+        private void dispatchIfComplete() {
+            if (repo == null || contributors == null) {
+                return;
+            }
+            if (!repo.isSuccessful()) {
+                setValue(new ApiResponse<>(repo, null));
+            } else if (!contributors.isSuccessful()) {
+                setValue(new ApiResponse<>(contributors, null));
+            } else {
+                setValue(new ApiResponse<>(contributors,
+                        new RepoDetails(repo.body, contributors.body)));
+            }
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.api.ApiResponse;
+import com.android.example.github.api.RateLimit;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed request is retried.
+ * <p>
+ * Server errors and network failures are retried with an exponential backoff; calls that failed
+ * otherwise, e.g. because the body could not be parsed, would fail again and are not retried.
+ * The delay is randomized between half and all of the backoff so that clients that failed
+ * together do not retry together. A {@code 403} caused by an exhausted rate limit is retried
+ * once the quota is restored, if that is within the maximum delay. Other client errors are not
+ * retried.
+ */
+public class RetryPolicy {
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, TimeUnit.MILLISECONDS);
+
+    private static final int FORBIDDEN = 403;
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final Random random;
+
+    /**
+     * @param maxAttempts The number of attempts, including the first one.
+     * @param baseDelay   The backoff before the first retry, doubled for each next one.
+     * @param maxDelay    The longest backoff.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit timeUnit) {
+        this(maxAttempts, timeUnit.toMillis(baseDelay), timeUnit.toMillis(maxDelay), new Random());
+    }
+
+    RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(3, 1, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param attempts The number of attempts that have been made, the last one returned the
+     *                 response.
+     * @param now      The current time in milliseconds.
+     * @return The delay before the next attempt or -1 if the request should not be retried.
+     */
+    public long retryDelayMillis(int attempts, @NonNull ApiResponse<?> response, long now) {
+        if (attempts >= maxAttempts) {
+            return -1;
+        }
+        RateLimit rateLimit = response.rateLimit;
+        if (response.code == FORBIDDEN && rateLimit != null && rateLimit.remaining == 0) {
+            long untilReset = Math.max(0, rateLimit.resetAtMillis - now);
+            return untilReset <= maxDelayMillis ? untilReset : -1;
+        }
+        if (response.code < 500 && response.code != ApiResponse.NETWORK_FAILURE) {
+            return -1;
+        }
+        long backoff = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempts - 1, 30));
+        long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half));
+    }
+}
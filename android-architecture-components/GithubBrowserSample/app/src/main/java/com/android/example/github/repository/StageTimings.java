@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Latency histograms of each stage of loading a resource, to find which screen spends its time
+ * where.
+ * <p>
+ * Stages are timed in microseconds by {@link NetworkBoundResource} and
+ * {@link FetchNextSearchPageTask}. The histograms can be logged with {@link #toString()} or
+ * exported as CSV with {@link #export(Appendable)}.
+ */
+@Singleton
+public class StageTimings {
+    public enum ResourceType {
+        USER,
+        REPOS,
+        REPO,
+        CONTRIBUTORS,
+        REPO_DETAILS,
+        SEARCH,
+        SEARCH_NEXT_PAGE
+    }
+
+    public enum Stage {
+        // until the database dispatches its first value
+        LOAD_FROM_DB,
+        // from creating the call until its response is received, for each attempt
+        NETWORK,
+        PROCESS_RESPONSE,
+        SAVE_CALL_RESULT,
+        // from the saved response until the database dispatches the new data
+        RELOAD,
+        // until the first success or error is dispatched
+        TOTAL
+    }
+
+    private final Map<ResourceType, Map<Stage, LatencyHistogram>> histograms =
+            new EnumMap<>(ResourceType.class);
+
+    @Inject
+    public StageTimings() {
+        for (ResourceType type : ResourceType.values()) {
+            Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                stages.put(stage, new LatencyHistogram());
+            }
+            histograms.put(type, stages);
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} value.
+     */
+    public void recordElapsed(ResourceType type, Stage stage, long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        get(type, stage).record(micros);
+    }
+
+    public LatencyHistogram get(ResourceType type, Stage stage) {
+        //noinspection ConstantConditions
+        return histograms.get(type).get(stage);
+    }
+
+    public void reset() {
+        for (Map<Stage, LatencyHistogram> stages : histograms.values()) {
+            for (LatencyHistogram histogram : stages.values()) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes a CSV line per stage that has been timed, with a header line. Values are in
+     * microseconds.
+     */
+    public void export(Appendable out) throws IOException {
+        out.append("resource,stage,count,p50,p95,p99,max\n");
+        for (Map.Entry<ResourceType, Map<Stage, LatencyHistogram>> type : histograms.entrySet()) {
+            for (Map.Entry<Stage, LatencyHistogram> stage : type.getValue().entrySet()) {
+                LatencyHistogram histogram = stage.getValue();
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                out.append(type.getKey().name().toLowerCase(Locale.US)).append(',')
+                        .append(stage.getKey().name().toLowerCase(Locale.US)).append(',')
+                        .append(String.valueOf(histogram.getCount())).append(',')
+                        .append(String.valueOf(histogram.getValueAtPercentile(50))).append(',')
+                        .append(String.valueOf(histogram.getValueAtPercentile(95))).append(',')
+                        .append(String.valueOf(histogram.getValueAtPercentile(99))).append(',')
+                        .append(String.valueOf(histogram.getMax())).append('\n');
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("StageTimings{");
+        for (Map.Entry<ResourceType, Map<Stage, LatencyHistogram>> type : histograms.entrySet()) {
+            for (Map.Entry<Stage, LatencyHistogram> stage : type.getValue().entrySet()) {
+                LatencyHistogram histogram = stage.getValue();
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                builder.append(String.format(Locale.US,
+                        "\n  %s %s: count=%d, p50=%.1fms, p95=%.1fms, p99=%.1fms, max=%.1fms",
+                        type.getKey(), stage.getKey(), histogram.getCount(),
+                        millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(95)),
+                        millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getMax())));
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
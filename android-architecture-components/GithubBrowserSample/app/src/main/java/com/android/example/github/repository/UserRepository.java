@@ -16,10 +16,12 @@
 
 package com.android.example.github.repository;
 
-import com.android.example.github.AppExecutors;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
+import com.android.example.github.db.GithubDbCache;
+import com.android.example.github.db.KeyedInvalidationTracker;
 import com.android.example.github.db.UserDao;
+import com.android.example.github.repository.StageTimings.ResourceType;
 import com.android.example.github.vo.Resource;
 import com.android.example.github.vo.User;
 
@@ -27,6 +29,8 @@ import android.arch.lifecycle.LiveData;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -35,19 +39,28 @@ import javax.inject.Singleton;
  */
 @Singleton
 public class UserRepository {
+    private static final FreshnessPolicy USER_FRESHNESS = new FreshnessPolicy(
+            1, 23, TimeUnit.HOURS);
+
     private final UserDao userDao;
     private final GithubService githubService;
-    private final AppExecutors appExecutors;
+    private final FetchCoordinator fetchCoordinator;
+    private final GithubDbCache dbCache;
+    private final KeyedInvalidationTracker invalidationTracker;
 
     @Inject
-    UserRepository(AppExecutors appExecutors, UserDao userDao, GithubService githubService) {
+    UserRepository(FetchCoordinator fetchCoordinator, UserDao userDao,
+            GithubService githubService, GithubDbCache dbCache,
+            KeyedInvalidationTracker invalidationTracker) {
         this.userDao = userDao;
         this.githubService = githubService;
-        this.appExecutors = appExecutors;
+        this.fetchCoordinator = fetchCoordinator;
+        this.dbCache = dbCache;
+        this.invalidationTracker = invalidationTracker;
     }
 
     public LiveData<Resource<User>> loadUser(String login) {
-        return new NetworkBoundResource<User,User>(appExecutors) {
+        return new NetworkBoundResource<User,User>(fetchCoordinator) {
             @Override
             protected void saveCallResult(@NonNull User item) {
                 userDao.insert(item);
@@ -58,16 +71,37 @@ public class UserRepository {
                 return data == null;
             }
 
+            @Override
+            protected FreshnessPolicy freshnessPolicy() {
+                return USER_FRESHNESS;
+            }
+
             @NonNull
             @Override
             protected LiveData<User> loadFromDb() {
-                return userDao.findByLogin(login);
+                return dbCache.users().track(login, invalidationTracker.createLiveData(
+                        new String[]{"user"}, login, () -> userDao.findUser(login)));
+            }
+
+            @Override
+            protected User loadFromCache() {
+                return dbCache.users().get(login);
+            }
+
+            @Override
+            protected ResourceType resourceType() {
+                return ResourceType.USER;
+            }
+
+            @Override
+            protected String fetchKey() {
+                return "users/" + login;
             }
 
             @NonNull
             @Override
             protected LiveData<ApiResponse<User>> createCall() {
-                return githubService.getUser(login);
+                return githubService.getUser(login, conditionalHeaders());
             }
         }.asLiveData();
     }
@@ -16,11 +16,12 @@
 
 package com.android.example.github.ui.common;
 
-import android.annotation.SuppressLint;
+import com.android.example.github.AppExecutors;
+
 import android.databinding.ViewDataBinding;
-import android.os.AsyncTask;
 import android.support.annotation.MainThread;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
@@ -29,6 +30,9 @@ import java.util.List;
 
 /**
  * A generic RecyclerView adapter that uses Data Binding & DiffUtil.
+ * <p>
+ * Diffs run on the {@link AppExecutors#computation()} executor and stop as soon as a newer list is
+ * set.
  *
  * @param <T> Type of the items in the list
  * @param <V> The type of the ViewDataBinding
@@ -36,11 +40,22 @@ import java.util.List;
 public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
         extends RecyclerView.Adapter<DataBoundViewHolder<V>> {
 
+    private final AppExecutors appExecutors;
+
+    private final DiffStats diffStats;
+
     @Nullable
     private List<T> items;
     // each time data is set, we update this variable so that if DiffUtil calculation returns
     // after repetitive updates, we can ignore the old calculation
     private int dataVersion = 0;
+    // copy of dataVersion that running diffs check to stop early once they are obsolete
+    private volatile int latestVersion = 0;
+
+    protected DataBoundListAdapter(AppExecutors appExecutors, DiffStats diffStats) {
+        this.appExecutors = appExecutors;
+        this.diffStats = diffStats;
+    }
 
     @Override
     public final DataBoundViewHolder<V> onCreateViewHolder(ViewGroup parent, int viewType) {
@@ -57,10 +72,10 @@ public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
         holder.binding.executePendingBindings();
     }
 
-    @SuppressLint("StaticFieldLeak")
     @MainThread
     public void replace(List<T> update) {
         dataVersion ++;
+        latestVersion = dataVersion;
         if (items == null) {
             if (update == null) {
                 return;
@@ -74,50 +89,75 @@ public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
         } else {
             final int startVersion = dataVersion;
             final List<T> oldItems = items;
-            new AsyncTask<Void, Void, DiffUtil.DiffResult>() {
-                @Override
-                protected DiffUtil.DiffResult  doInBackground(Void... voids) {
-                    return DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                        @Override
-                        public int getOldListSize() {
-                            return oldItems.size();
-                        }
-
-                        @Override
-                        public int getNewListSize() {
-                            return update.size();
-                        }
-
-                        @Override
-                        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                            T oldItem = oldItems.get(oldItemPosition);
-                            T newItem = update.get(newItemPosition);
-                            return DataBoundListAdapter.this.areItemsTheSame(oldItem, newItem);
-                        }
-
-                        @Override
-                        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                            T oldItem = oldItems.get(oldItemPosition);
-                            T newItem = update.get(newItemPosition);
-                            return DataBoundListAdapter.this.areContentsTheSame(oldItem, newItem);
-                        }
-                    });
+            final long startNanos = System.nanoTime();
+            appExecutors.computation().execute(() -> {
+                DiffUtil.DiffResult diffResult;
+                try {
+                    diffResult = calculateDiff(oldItems, update, startVersion);
+                } catch (DiffCancelledException e) {
+                    diffStats.recordCancelled();
+                    return;
                 }
-
-                @Override
-                protected void onPostExecute(DiffUtil.DiffResult diffResult) {
+                appExecutors.mainThread().execute(() -> {
                     if (startVersion != dataVersion) {
                         // ignore update
+                        diffStats.recordCancelled();
                         return;
                     }
                     items = update;
                     diffResult.dispatchUpdatesTo(DataBoundListAdapter.this);
+                    diffStats.recordDispatched(System.nanoTime() - startNanos);
+                });
+            });
+        }
+    }
 
-                }
-            }.execute();
+    @WorkerThread
+    private DiffUtil.DiffResult calculateDiff(List<T> oldItems, List<T> update,
+            int startVersion) {
+        checkNotCancelled(startVersion);
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return update.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                checkNotCancelled(startVersion);
+                T oldItem = oldItems.get(oldItemPosition);
+                T newItem = update.get(newItemPosition);
+                return DataBoundListAdapter.this.areItemsTheSame(oldItem, newItem);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                checkNotCancelled(startVersion);
+                T oldItem = oldItems.get(oldItemPosition);
+                T newItem = update.get(newItemPosition);
+                return DataBoundListAdapter.this.areContentsTheSame(oldItem, newItem);
+            }
+        });
+    }
+
+    private void checkNotCancelled(int startVersion) {
+        if (startVersion != latestVersion) {
+            throw DiffCancelledException.INSTANCE;
         }
     }
 
+    /**
+     * Latency of the diffs of the adapters sharing these stats.
+     */
+    public DiffStats getDiffStats() {
+        return diffStats;
+    }
+
     protected abstract void bind(V binding, T item);
 
     protected abstract boolean areItemsTheSame(T oldItem, T newItem);
@@ -128,4 +168,22 @@ public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
     public int getItemCount() {
         return items == null ? 0 : items.size();
     }
+
+    protected T getItem(int position) {
+        //noinspection ConstantConditions
+        return items.get(position);
+    }
+
+    /**
+     * Thrown from the diff callbacks to abandon a diff once a newer list has been set.
+     */
+    private static class DiffCancelledException extends RuntimeException {
+        static final DiffCancelledException INSTANCE = new DiffCancelledException();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // thrown for control flow only
+            return this;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Latency of the list diffs of the {@link DataBoundListAdapter}s, from the time the new list is
+ * received to the time the update is dispatched, and how many diffs were dropped because a newer
+ * list arrived first.
+ */
+@Singleton
+public class DiffStats {
+    private int dispatchedCount;
+    private int cancelledCount;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    @Inject
+    public DiffStats() {
+    }
+
+    synchronized void recordDispatched(long latencyNanos) {
+        dispatchedCount++;
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    synchronized void recordCancelled() {
+        cancelledCount++;
+    }
+
+    public synchronized int getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    public synchronized int getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public synchronized long getAverageLatencyMillis() {
+        return dispatchedCount == 0 ? 0
+                : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / dispatchedCount);
+    }
+
+    public synchronized long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DiffStats{" +
+                "dispatched=" + dispatchedCount +
+                ", cancelled=" + cancelledCount +
+                ", avgMs=" + getAverageLatencyMillis() +
+                ", maxMs=" + getMaxLatencyMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import com.android.example.github.databinding.RepoItemBinding;
+import com.android.example.github.vo.Repo;
+
+import android.arch.paging.PagedListAdapter;
+import android.databinding.DataBindingComponent;
+import android.view.ViewGroup;
+
+/**
+ * A RecyclerView adapter for a {@link android.arch.paging.PagedList} of {@link Repo}s. The pages
+ * are diffed by the paging library, items are bound like in {@link RepoListAdapter}.
+ */
+public class PagedRepoListAdapter
+        extends PagedListAdapter<Repo, DataBoundViewHolder<RepoItemBinding>> {
+    private final DataBindingComponent dataBindingComponent;
+    private final RepoListAdapter.RepoClickCallback repoClickCallback;
+    private final boolean showFullName;
+
+    public PagedRepoListAdapter(DataBindingComponent dataBindingComponent, boolean showFullName,
+            RepoListAdapter.RepoClickCallback repoClickCallback) {
+        super(RepoListAdapter.DIFF_CALLBACK);
+        this.dataBindingComponent = dataBindingComponent;
+        this.repoClickCallback = repoClickCallback;
+        this.showFullName = showFullName;
+    }
+
+    @Override
+    public DataBoundViewHolder<RepoItemBinding> onCreateViewHolder(ViewGroup parent,
+            int viewType) {
+        return new DataBoundViewHolder<>(RepoListAdapter.createBinding(parent,
+                dataBindingComponent, showFullName, repoClickCallback));
+    }
+
+    @Override
+    public void onBindViewHolder(DataBoundViewHolder<RepoItemBinding> holder, int position) {
+        // null while a placeholder is shown
+        holder.binding.setRepo(getItem(position));
+        holder.binding.executePendingBindings();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import com.bumptech.glide.ListPreloader;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Starts loading the images of the rows below (or above, when scrolling up) the visible ones, so
+ * they are in the memory cache by the time the rows are bound.
+ * <p>
+ * Works with {@link LinearLayoutManager}s.
+ *
+ * @param <T> Type of the items in the list
+ */
+public class RecyclerViewPreloader<T> extends RecyclerView.OnScrollListener {
+    private final ListPreloader<T> preloader;
+
+    /**
+     * @param maxPreload The number of rows to load ahead of the visible ones
+     */
+    public RecyclerViewPreloader(ListPreloader.PreloadModelProvider<T> modelProvider,
+            ListPreloader.PreloadSizeProvider<T> sizeProvider, int maxPreload) {
+        preloader = new ListPreloader<>(modelProvider, sizeProvider, maxPreload);
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int visibleCount = layoutManager.findLastVisibleItemPosition() - first + 1;
+        // the preloader only needs the positions, it does not use the list view
+        preloader.onScroll(null, first, visibleCount, layoutManager.getItemCount());
+    }
+}
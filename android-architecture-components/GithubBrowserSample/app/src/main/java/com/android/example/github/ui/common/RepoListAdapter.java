@@ -16,6 +16,7 @@
 
 package com.android.example.github.ui.common;
 
+import com.android.example.github.AppExecutors;
 import com.android.example.github.R;
 import com.android.example.github.databinding.RepoItemBinding;
 import com.android.example.github.util.Objects;
@@ -23,6 +24,8 @@ import com.android.example.github.vo.Repo;
 
 import android.databinding.DataBindingComponent;
 import android.databinding.DataBindingUtil;
+import android.support.annotation.NonNull;
+import android.support.v7.recyclerview.extensions.DiffCallback;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
@@ -30,12 +33,28 @@ import android.view.ViewGroup;
  * A RecyclerView adapter for {@link Repo} class.
  */
 public class RepoListAdapter extends DataBoundListAdapter<Repo, RepoItemBinding> {
+    static final DiffCallback<Repo> DIFF_CALLBACK = new DiffCallback<Repo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Repo oldItem, @NonNull Repo newItem) {
+            return Objects.equals(oldItem.owner, newItem.owner) &&
+                    Objects.equals(oldItem.name, newItem.name);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Repo oldItem, @NonNull Repo newItem) {
+            return Objects.equals(oldItem.description, newItem.description) &&
+                    oldItem.stars == newItem.stars;
+        }
+    };
+
     private final DataBindingComponent dataBindingComponent;
     private final RepoClickCallback repoClickCallback;
     private final boolean showFullName;
 
-    public RepoListAdapter(DataBindingComponent dataBindingComponent, boolean showFullName,
+    public RepoListAdapter(AppExecutors appExecutors, DiffStats diffStats,
+            DataBindingComponent dataBindingComponent, boolean showFullName,
             RepoClickCallback repoClickCallback) {
+        super(appExecutors, diffStats);
         this.dataBindingComponent = dataBindingComponent;
         this.repoClickCallback = repoClickCallback;
         this.showFullName = showFullName;
@@ -43,6 +62,12 @@ public class RepoListAdapter extends DataBoundListAdapter<Repo, RepoItemBinding>
 
     @Override
     protected RepoItemBinding createBinding(ViewGroup parent) {
+        return createBinding(parent, dataBindingComponent, showFullName, repoClickCallback);
+    }
+
+    static RepoItemBinding createBinding(ViewGroup parent,
+            DataBindingComponent dataBindingComponent, boolean showFullName,
+            RepoClickCallback repoClickCallback) {
         RepoItemBinding binding = DataBindingUtil
                 .inflate(LayoutInflater.from(parent.getContext()), R.layout.repo_item,
                         parent, false, dataBindingComponent);
@@ -63,14 +88,12 @@ public class RepoListAdapter extends DataBoundListAdapter<Repo, RepoItemBinding>
 
     @Override
     protected boolean areItemsTheSame(Repo oldItem, Repo newItem) {
-        return Objects.equals(oldItem.owner, newItem.owner) &&
-                Objects.equals(oldItem.name, newItem.name);
+        return DIFF_CALLBACK.areItemsTheSame(oldItem, newItem);
     }
 
     @Override
     protected boolean areContentsTheSame(Repo oldItem, Repo newItem) {
-        return Objects.equals(oldItem.description, newItem.description) &&
-                oldItem.stars == newItem.stars;
+        return DIFF_CALLBACK.areContentsTheSame(oldItem, newItem);
     }
 
     public interface RepoClickCallback {
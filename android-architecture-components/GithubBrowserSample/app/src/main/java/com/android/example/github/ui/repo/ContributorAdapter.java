@@ -16,25 +16,37 @@
 
 package com.android.example.github.ui.repo;
 
+import com.android.example.github.AppExecutors;
 import com.android.example.github.R;
 import com.android.example.github.databinding.ContributorItemBinding;
 import com.android.example.github.ui.common.DataBoundListAdapter;
+import com.android.example.github.ui.common.DiffStats;
+import com.android.example.github.ui.common.RecyclerViewPreloader;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Contributor;
 
+import com.bumptech.glide.GenericRequestBuilder;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
 import android.databinding.DataBindingComponent;
 import android.databinding.DataBindingUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
+import java.util.Collections;
+import java.util.List;
+
 public class ContributorAdapter
         extends DataBoundListAdapter<Contributor, ContributorItemBinding> {
 
     private final DataBindingComponent dataBindingComponent;
     private final ContributorClickCallback callback;
 
-    public ContributorAdapter(DataBindingComponent dataBindingComponent,
-            ContributorClickCallback callback) {
+    public ContributorAdapter(AppExecutors appExecutors, DiffStats diffStats,
+            DataBindingComponent dataBindingComponent, ContributorClickCallback callback) {
+        super(appExecutors, diffStats);
         this.dataBindingComponent = dataBindingComponent;
         this.callback = callback;
     }
@@ -70,6 +82,29 @@ public class ContributorAdapter
                 && oldItem.getContributions() == newItem.getContributions();
     }
 
+    /**
+     * Returns a scroll listener that loads the avatars of the next {@code rows} contributors.
+     *
+     * @param avatarSize The size of the avatar views, in pixels
+     */
+    public RecyclerView.OnScrollListener createAvatarPreloader(int avatarSize, int rows) {
+        return new RecyclerViewPreloader<>(new ListPreloader.PreloadModelProvider<Contributor>() {
+            @Override
+            public List<Contributor> getPreloadItems(int position) {
+                if (position >= getItemCount() || getItem(position).getAvatarUrl() == null) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(getItem(position));
+            }
+
+            @Override
+            public GenericRequestBuilder getPreloadRequestBuilder(Contributor item) {
+                return dataBindingComponent.getFragmentBindingAdapters()
+                        .imageRequest(item.getAvatarUrl());
+            }
+        }, new FixedPreloadSizeProvider<>(avatarSize, avatarSize), rows);
+    }
+
     public interface ContributorClickCallback {
         void onClick(Contributor contributor);
     }
@@ -16,10 +16,12 @@
 
 package com.android.example.github.ui.repo;
 
+import com.android.example.github.AppExecutors;
 import com.android.example.github.R;
 import com.android.example.github.binding.FragmentDataBindingComponent;
 import com.android.example.github.databinding.RepoFragmentBinding;
 import com.android.example.github.di.Injectable;
+import com.android.example.github.ui.common.DiffStats;
 import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.AutoClearedValue;
 import com.android.example.github.vo.Repo;
@@ -52,6 +54,9 @@ public class RepoFragment extends Fragment implements Injectable {
 
     private static final String REPO_NAME_KEY = "repo_name";
 
+    // about a screen of contributor rows
+    private static final int AVATAR_PRELOAD_ROWS = 10;
+
     @Inject
     ViewModelProvider.Factory viewModelFactory;
 
@@ -60,6 +65,12 @@ public class RepoFragment extends Fragment implements Injectable {
     @Inject
     NavigationController navigationController;
 
+    @Inject
+    AppExecutors appExecutors;
+
+    @Inject
+    DiffStats diffStats;
+
     DataBindingComponent dataBindingComponent = new FragmentDataBindingComponent(this);
     AutoClearedValue<RepoFragmentBinding> binding;
     AutoClearedValue<ContributorAdapter> adapter;
@@ -83,10 +94,13 @@ public class RepoFragment extends Fragment implements Injectable {
             binding.get().executePendingBindings();
         });
 
-        ContributorAdapter adapter = new ContributorAdapter(dataBindingComponent,
+        ContributorAdapter adapter = new ContributorAdapter(appExecutors, diffStats,
+                dataBindingComponent,
                 contributor -> navigationController.navigateToUser(contributor.getLogin()));
         this.adapter = new AutoClearedValue<>(this, adapter);
         binding.get().contributorList.setAdapter(adapter);
+        binding.get().contributorList.addOnScrollListener(adapter.createAvatarPreloader(
+                getResources().getDimensionPixelSize(R.dimen.photo_size), AVATAR_PRELOAD_ROWS));
         initContributorList(repoViewModel);
     }
 
@@ -21,6 +21,7 @@ import com.android.example.github.util.AbsentLiveData;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 import com.android.example.github.vo.Resource;
 
 import android.arch.lifecycle.LiveData;
@@ -36,26 +37,31 @@ import javax.inject.Inject;
 public class RepoViewModel extends ViewModel {
     @VisibleForTesting
     final MutableLiveData<RepoId> repoId;
+    private final LiveData<Resource<RepoDetails>> details;
     private final LiveData<Resource<Repo>> repo;
     private final LiveData<Resource<List<Contributor>>> contributors;
 
     @Inject
     public RepoViewModel(RepoRepository repository) {
         this.repoId = new MutableLiveData<>();
-        repo = Transformations.switchMap(repoId, input -> {
+        details = Transformations.switchMap(repoId, input -> {
             if (input.isEmpty()) {
                 return AbsentLiveData.create();
             }
-            return repository.loadRepo(input.owner, input.name);
+            return repository.loadRepoDetails(input.owner, input.name);
         });
-        contributors = Transformations.switchMap(repoId, input -> {
-            if (input.isEmpty()) {
-                return AbsentLiveData.create();
-            } else {
-                return repository.loadContributors(input.owner, input.name);
-            }
+        // both are mapped from the same load so they are dispatched together
+        repo = Transformations.map(details, resource -> resource == null ? null
+                : new Resource<>(resource.status,
+                        resource.data == null ? null : resource.data.repo, resource.message));
+        contributors = Transformations.map(details, resource -> resource == null ? null
+                : new Resource<>(resource.status,
+                        resource.data == null ? null : resource.data.contributors,
+                        resource.message));
+    }
 
-        });
+    public LiveData<Resource<RepoDetails>> getRepoDetails() {
+        return details;
     }
 
     public LiveData<Resource<Repo>> getRepo() {
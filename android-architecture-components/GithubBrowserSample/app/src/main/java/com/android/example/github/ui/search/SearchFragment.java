@@ -21,7 +21,7 @@ import com.android.example.github.binding.FragmentDataBindingComponent;
 import com.android.example.github.databinding.SearchFragmentBinding;
 import com.android.example.github.di.Injectable;
 import com.android.example.github.ui.common.NavigationController;
-import com.android.example.github.ui.common.RepoListAdapter;
+import com.android.example.github.ui.common.PagedRepoListAdapter;
 import com.android.example.github.util.AutoClearedValue;
 
 import android.arch.lifecycle.ViewModelProvider;
@@ -37,6 +37,8 @@ import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -58,7 +60,7 @@ public class SearchFragment extends Fragment implements Injectable {
 
     AutoClearedValue<SearchFragmentBinding> binding;
 
-    AutoClearedValue<RepoListAdapter> adapter;
+    AutoClearedValue<PagedRepoListAdapter> adapter;
 
     private SearchViewModel searchViewModel;
 
@@ -78,7 +80,7 @@ public class SearchFragment extends Fragment implements Injectable {
         super.onActivityCreated(savedInstanceState);
         searchViewModel = ViewModelProviders.of(this, viewModelFactory).get(SearchViewModel.class);
         initRecyclerView();
-        RepoListAdapter rvAdapter = new RepoListAdapter(dataBindingComponent, true,
+        PagedRepoListAdapter rvAdapter = new PagedRepoListAdapter(dataBindingComponent, true,
                 repo -> navigationController.navigateToRepo(repo.owner.login, repo.name));
         binding.get().repoList.setAdapter(rvAdapter);
         adapter = new AutoClearedValue<>(this, rvAdapter);
@@ -104,6 +106,21 @@ public class SearchFragment extends Fragment implements Injectable {
             }
             return false;
         });
+        binding.get().input.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                binding.get().setQuery(s.toString());
+                searchViewModel.setLiveQuery(s.toString());
+            }
+        });
     }
 
     private void doSearch(View v) {
@@ -115,6 +132,8 @@ public class SearchFragment extends Fragment implements Injectable {
     }
 
     private void initRecyclerView() {
+        searchViewModel.setPrefetchDistance(
+                getResources().getInteger(R.integer.search_prefetch_distance));
 
         binding.get().repoList.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
@@ -123,18 +142,16 @@ public class SearchFragment extends Fragment implements Injectable {
                         recyclerView.getLayoutManager();
                 int lastPosition = layoutManager
                         .findLastVisibleItemPosition();
-                if (lastPosition == adapter.get().getItemCount() - 1) {
-                    searchViewModel.loadNextPage();
-                }
+                searchViewModel.onScrolled(lastPosition, adapter.get().getItemCount());
             }
         });
         searchViewModel.getResults().observe(this, result -> {
             binding.get().setSearchResource(result);
             binding.get().setResultCount((result == null || result.data == null)
                     ? 0 : result.data.size());
-            adapter.get().replace(result == null ? null : result.data);
             binding.get().executePendingBindings();
         });
+        searchViewModel.getPagedResults().observe(this, repos -> adapter.get().setList(repos));
 
         searchViewModel.getLoadMoreStatus().observe(this, loadingMore -> {
             if (loadingMore == null) {
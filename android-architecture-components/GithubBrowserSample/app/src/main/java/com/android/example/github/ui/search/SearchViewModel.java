@@ -16,17 +16,24 @@
 
 package com.android.example.github.ui.search;
 
+import com.android.example.github.AppExecutors;
+import com.android.example.github.PriorityExecutor.Priority;
 import com.android.example.github.repository.RepoRepository;
 import com.android.example.github.util.AbsentLiveData;
+import com.android.example.github.util.ListDataSource;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.Resource;
+import com.android.example.github.vo.Status;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
 import android.arch.lifecycle.Transformations;
 import android.arch.lifecycle.ViewModel;
+import android.arch.paging.PagedList;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -37,32 +44,143 @@ import java.util.Locale;
 import javax.inject.Inject;
 
 public class SearchViewModel extends ViewModel {
+    static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
+    // how long the input must stay the same before a live query is searched on GitHub
+    static final long LIVE_QUERY_DELAY_MILLIS = 300;
 
     private final MutableLiveData<String> query = new MutableLiveData<>();
 
-    private final LiveData<Resource<List<Repo>>> results;
+    // follows the input without waiting, only used to show cached results
+    private final MutableLiveData<String> previewQuery = new MutableLiveData<>();
+
+    private final LiveData<Resource<List<Repo>>> searchResults;
+
+    private final LiveData<List<Repo>> preview;
+
+    private final MediatorLiveData<Resource<List<Repo>>> results = new MediatorLiveData<>();
+
+    private final LiveData<PagedList<Repo>> queryPagedResults;
+
+    private final MediatorLiveData<PagedList<Repo>> pagedResults = new MediatorLiveData<>();
+
+    // the preview shown in pagedResults and the list it was made of
+    @Nullable
+    private PagedList<Repo> pagedPreview;
+    @Nullable
+    private List<Repo> pagedPreviewSource;
+
+    @VisibleForTesting
+    final SearchBoundaryCallback boundaryCallback = new SearchBoundaryCallback();
 
     private final NextPageHandler nextPageHandler;
 
+    private final AppExecutors appExecutors;
+
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+
+    // incremented for each input so that a pending live query knows it was replaced
+    private int liveQueryVersion;
+
     @Inject
-    SearchViewModel(RepoRepository repoRepository) {
+    SearchViewModel(RepoRepository repoRepository, AppExecutors appExecutors) {
+        this.appExecutors = appExecutors;
         nextPageHandler = new NextPageHandler(repoRepository);
-        results = Transformations.switchMap(query, search -> {
+        searchResults = Transformations.switchMap(query, search -> {
             if (search == null || search.trim().length() == 0) {
                 return AbsentLiveData.create();
             } else {
                 return repoRepository.search(search);
             }
         });
+        preview = Transformations.switchMap(previewQuery, search -> {
+            if (search == null || search.trim().length() == 0) {
+                return AbsentLiveData.create();
+            } else {
+                return repoRepository.searchCached(search);
+            }
+        });
+        results.addSource(searchResults, resource -> updateResults());
+        results.addSource(preview, cached -> updateResults());
+        queryPagedResults = Transformations.switchMap(query, search -> {
+            if (search == null || search.trim().length() == 0) {
+                return AbsentLiveData.create();
+            } else {
+                return repoRepository.searchPaged(search, prefetchDistance, boundaryCallback);
+            }
+        });
+        pagedResults.addSource(results, resource -> updatePagedResults());
+        pagedResults.addSource(queryPagedResults, paged -> updatePagedResults());
+    }
+
+    private void updatePagedResults() {
+        Resource<List<Repo>> resource = results.getValue();
+        PagedList<Repo> paged;
+        if (resource == null || resource.data == null) {
+            paged = null;
+        } else if (resource.data == preview.getValue()) {
+            if (resource.data != pagedPreviewSource) {
+                pagedPreviewSource = resource.data;
+                pagedPreview = ListDataSource.toPagedList(resource.data);
+            }
+            paged = pagedPreview;
+        } else {
+            paged = queryPagedResults.getValue();
+            if (paged == null) {
+                // keep what is shown until the rows of the query are loaded
+                return;
+            }
+        }
+        if (paged != pagedResults.getValue()) {
+            pagedResults.setValue(paged);
+        }
+    }
+
+    private void updateResults() {
+        Resource<List<Repo>> resource = searchResults.getValue();
+        List<Repo> cached = preview.getValue();
+        // the cached results are shown while the input is ahead of the query or the query is
+        // still loading, and if the query failed, e.g. while offline
+        if (cached != null) {
+            if (!Objects.equals(previewQuery.getValue(), query.getValue())
+                    || hasNoData(resource)) {
+                resource = Resource.loading(cached);
+            } else if (resource.status == Status.ERROR && resource.data == null) {
+                resource = Resource.error(resource.message, cached);
+            }
+        }
+        if (!Objects.equals(resource, results.getValue())) {
+            results.setValue(resource);
+        }
+    }
+
+    private static boolean hasNoData(@Nullable Resource<List<Repo>> resource) {
+        return resource == null || (resource.status == Status.LOADING && resource.data == null);
     }
 
+    /**
+     * The results of the query. While they are not loaded yet, or if they cannot be loaded, the
+     * repos of the database that match the query are shown instead.
+     */
     @VisibleForTesting
     public LiveData<Resource<List<Repo>>> getResults() {
         return results;
     }
 
+    /**
+     * The rows of {@link #getResults()} as a paged list: the results of the query read from the
+     * database page by page, or the cached repos shown instead of them. The next GitHub page is
+     * prefetched once the last row of the query is loaded.
+     */
+    public LiveData<PagedList<Repo>> getPagedResults() {
+        return pagedResults;
+    }
+
     public void setQuery(@NonNull String originalInput) {
-        String input = originalInput.toLowerCase(Locale.getDefault()).trim();
+        String input = normalize(originalInput);
+        // a pending live query is replaced by this one
+        liveQueryVersion++;
+        setPreviewQuery(input);
         if (Objects.equals(input, query.getValue())) {
             return;
         }
@@ -70,11 +188,55 @@ public class SearchViewModel extends ViewModel {
         query.setValue(input);
     }
 
+    /**
+     * Sets the query while it is being typed. Cached results matching the input are shown right
+     * away but GitHub is only searched once the input has not changed for
+     * {@link #LIVE_QUERY_DELAY_MILLIS}, so typing does not send a request per keystroke.
+     */
+    public void setLiveQuery(@NonNull String originalInput) {
+        String input = normalize(originalInput);
+        int version = ++liveQueryVersion;
+        setPreviewQuery(input);
+        appExecutors.schedule(appExecutors.mainThread(), () -> {
+            if (version == liveQueryVersion) {
+                setQuery(input);
+            }
+        }, LIVE_QUERY_DELAY_MILLIS);
+    }
+
+    private void setPreviewQuery(String input) {
+        if (!Objects.equals(input, previewQuery.getValue())) {
+            previewQuery.setValue(input);
+        }
+    }
+
+    private static String normalize(String input) {
+        return input.toLowerCase(Locale.getDefault()).trim();
+    }
+
     @VisibleForTesting
     public LiveData<LoadMoreState> getLoadMoreStatus() {
         return nextPageHandler.getLoadMoreState();
     }
 
+    /**
+     * Sets how many rows before the end of the list the next page starts loading in the
+     * background, for the queries set after this call. 0 disables prefetching.
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Loads the next page once the last row is visible and shows it as loading. Pages are
+     * prefetched before that by the {@link SearchBoundaryCallback}.
+     */
+    void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (itemCount > 0 && lastVisiblePosition == itemCount - 1) {
+            loadNextPage();
+        }
+    }
+
     @VisibleForTesting
     public void loadNextPage() {
         String value = query.getValue();
@@ -90,6 +252,22 @@ public class SearchViewModel extends ViewModel {
         }
     }
 
+    /**
+     * Prefetches the next GitHub page when the paged list has loaded the last row of the query.
+     * The first page is fetched by the search itself.
+     */
+    @VisibleForTesting
+    class SearchBoundaryCallback extends PagedList.BoundaryCallback<Repo> {
+        @MainThread
+        @Override
+        public void onItemAtEndLoaded(@NonNull Repo itemAtEnd) {
+            String value = query.getValue();
+            if (prefetchDistance > 0 && value != null && value.trim().length() != 0) {
+                nextPageHandler.prefetchNextPage(value);
+            }
+        }
+    }
+
     static class LoadMoreState {
         private final boolean running;
         private final String errorMessage;
@@ -126,6 +304,10 @@ public class SearchViewModel extends ViewModel {
         private final RepoRepository repository;
         @VisibleForTesting
         boolean hasMore;
+        // true while the running fetch was started ahead of time and the user has not reached
+        // the end of the list yet, so it is not shown as loading and its errors are not reported
+        @VisibleForTesting
+        boolean prefetching;
 
         @VisibleForTesting
         NextPageHandler(RepoRepository repository) {
@@ -134,13 +316,34 @@ public class SearchViewModel extends ViewModel {
         }
 
         void queryNextPage(String query) {
+            queryNextPage(query, false);
+        }
+
+        /**
+         * Starts fetching the next page without showing it as loading. Nothing happens if a page
+         * is already being fetched for this query or the last fetch found no next page.
+         */
+        void prefetchNextPage(String query) {
+            queryNextPage(query, true);
+        }
+
+        private void queryNextPage(String query, boolean prefetch) {
             if (Objects.equals(this.query, query)) {
+                if (!prefetch && prefetching) {
+                    // the user caught up with the prefetch
+                    prefetching = false;
+                    loadMoreState.setValue(new LoadMoreState(true, null));
+                }
                 return;
             }
             unregister();
             this.query = query;
-            nextPageLiveData = repository.searchNextPage(query);
-            loadMoreState.setValue(new LoadMoreState(true, null));
+            prefetching = prefetch;
+            nextPageLiveData = repository.searchNextPage(query,
+                    prefetch ? Priority.PREFETCH : Priority.USER_VISIBLE);
+            if (!prefetch) {
+                loadMoreState.setValue(new LoadMoreState(true, null));
+            }
             //noinspection ConstantConditions
             nextPageLiveData.observeForever(this);
         }
@@ -154,13 +357,16 @@ public class SearchViewModel extends ViewModel {
                     case SUCCESS:
                         hasMore = Boolean.TRUE.equals(result.data);
                         unregister();
+                        prefetching = false;
                         loadMoreState.setValue(new LoadMoreState(false, null));
                         break;
                     case ERROR:
                         hasMore = true;
                         unregister();
+                        // a failed prefetch is retried when the user reaches the end of the list
                         loadMoreState.setValue(new LoadMoreState(false,
-                                result.message));
+                                prefetching ? null : result.message));
+                        prefetching = false;
                         break;
                 }
             }
@@ -176,9 +382,13 @@ public class SearchViewModel extends ViewModel {
             }
         }
 
+        /**
+         * Stops observing the running fetch, which cancels it, and forgets the query.
+         */
         private void reset() {
             unregister();
             hasMore = true;
+            prefetching = false;
             loadMoreState.setValue(new LoadMoreState(false, null));
         }
 
@@ -33,7 +33,7 @@ import com.android.example.github.binding.FragmentDataBindingComponent;
 import com.android.example.github.databinding.UserFragmentBinding;
 import com.android.example.github.di.Injectable;
 import com.android.example.github.ui.common.NavigationController;
-import com.android.example.github.ui.common.RepoListAdapter;
+import com.android.example.github.ui.common.PagedRepoListAdapter;
 import com.android.example.github.util.AutoClearedValue;
 
 import javax.inject.Inject;
@@ -49,7 +49,7 @@ public class UserFragment extends Fragment implements Injectable {
     private UserViewModel userViewModel;
     @VisibleForTesting
     AutoClearedValue<UserFragmentBinding> binding;
-    private AutoClearedValue<RepoListAdapter> adapter;
+    private AutoClearedValue<PagedRepoListAdapter> adapter;
 
     public static UserFragment create(String login) {
         UserFragment userFragment = new UserFragment();
@@ -81,7 +81,7 @@ public class UserFragment extends Fragment implements Injectable {
             // this is only necessary because espresso cannot read data binding callbacks.
             binding.get().executePendingBindings();
         });
-        RepoListAdapter rvAdapter = new RepoListAdapter(dataBindingComponent, false,
+        PagedRepoListAdapter rvAdapter = new PagedRepoListAdapter(dataBindingComponent, false,
                 repo -> navigationController.navigateToRepo(repo.owner.login, repo.name));
         binding.get().repoList.setAdapter(rvAdapter);
         this.adapter = new AutoClearedValue<>(this, rvAdapter);
@@ -89,14 +89,12 @@ public class UserFragment extends Fragment implements Injectable {
     }
 
     private void initRepoList() {
-        userViewModel.getRepositories().observe(this, repos -> {
+        // only observed to fetch the repos, the list shows the pages read from the database
+        userViewModel.getRepositoriesRefresh().observe(this, refresh -> {});
+        userViewModel.getPagedRepositories().observe(this, repos -> {
             // no null checks for adapter.get() since LiveData guarantees that we'll not receive
             // the event if fragment is now show.
-            if (repos == null) {
-                adapter.get().replace(null);
-            } else {
-                adapter.get().replace(repos.data);
-            }
+            adapter.get().setList(repos);
         });
     }
 }
@@ -28,16 +28,16 @@ import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Transformations;
 import android.arch.lifecycle.ViewModel;
+import android.arch.paging.PagedList;
 import android.support.annotation.VisibleForTesting;
 
-import java.util.List;
-
 import javax.inject.Inject;
 
 public class UserViewModel extends ViewModel {
     @VisibleForTesting
     final MutableLiveData<String> login = new MutableLiveData<>();
-    private final LiveData<Resource<List<Repo>>> repositories;
+    private final LiveData<Resource<Integer>> repositoriesRefresh;
+    private final LiveData<PagedList<Repo>> pagedRepositories;
     private final LiveData<Resource<User>> user;
     @SuppressWarnings("unchecked")
     @Inject
@@ -49,11 +49,18 @@ public class UserViewModel extends ViewModel {
                 return userRepository.loadUser(login);
             }
         });
-        repositories = Transformations.switchMap(login, login -> {
+        repositoriesRefresh = Transformations.switchMap(login, login -> {
             if (login == null) {
                 return AbsentLiveData.create();
             } else {
-                return repoRepository.loadRepos(login);
+                return repoRepository.refreshRepos(login);
+            }
+        });
+        pagedRepositories = Transformations.switchMap(login, login -> {
+            if (login == null) {
+                return AbsentLiveData.create();
+            } else {
+                return repoRepository.loadReposPaged(login);
             }
         });
     }
@@ -71,9 +78,21 @@ public class UserViewModel extends ViewModel {
         return user;
     }
 
+    /**
+     * Fetches the repositories of the user while observed, its data is how many are saved.
+     */
+    @VisibleForTesting
+    public LiveData<Resource<Integer>> getRepositoriesRefresh() {
+        return repositoriesRefresh;
+    }
+
+    /**
+     * The repositories of the user read from the database page by page. They are fetched and
+     * refreshed by {@link #getRepositoriesRefresh()}, which must be observed as well.
+     */
     @VisibleForTesting
-    public LiveData<Resource<List<Repo>>> getRepositories() {
-        return repositories;
+    public LiveData<PagedList<Repo>> getPagedRepositories() {
+        return pagedRepositories;
     }
 
     @VisibleForTesting
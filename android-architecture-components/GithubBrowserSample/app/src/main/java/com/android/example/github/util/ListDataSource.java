@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import android.arch.paging.PagedList;
+import android.arch.paging.PositionalDataSource;
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A data source over a list that is already in memory, e.g. to show it in a paged list adapter.
+ *
+ * @param <T> Type of the items in the list
+ */
+public class ListDataSource<T> extends PositionalDataSource<T> {
+    private final List<T> items;
+
+    public ListDataSource(List<T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Returns a paged list of the items. It loads them on the calling thread, nothing is loaded
+     * later.
+     */
+    public static <T> PagedList<T> toPagedList(List<T> items) {
+        PagedList.Config config = new PagedList.Config.Builder()
+                .setPageSize(Math.max(1, items.size()))
+                .setEnablePlaceholders(false)
+                .build();
+        return new PagedList.Builder<>(new ListDataSource<>(items), config)
+                .setMainThreadExecutor(Runnable::run)
+                .setBackgroundThreadExecutor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams params,
+            @NonNull LoadInitialCallback<T> callback) {
+        callback.onResult(items, 0, items.size());
+    }
+
+    @Override
+    public void loadRange(@NonNull LoadRangeParams params,
+            @NonNull LoadRangeCallback<T> callback) {
+        int end = Math.min(params.startPosition + params.loadSize, items.size());
+        callback.onResult(items.subList(Math.min(params.startPosition, end), end));
+    }
+}
@@ -16,7 +16,7 @@
 
 package com.android.example.github.util;
 
-
+import com.android.example.github.AppExecutors;
 import com.android.example.github.api.ApiResponse;
 
 import android.arch.lifecycle.LiveData;
@@ -31,12 +31,24 @@ import retrofit2.Response;
 
 /**
  * A Retrofit adapter that converts the Call into a LiveData of ApiResponse.
+ * <p>
+ * The call is enqueued when the LiveData becomes active. If the LiveData stays inactive for
+ * {@code cancelDelayMillis}, e.g. because a {@code switchMap} moved to another source, the call
+ * is cancelled and no value is dispatched for it. The delay lets the call survive configuration
+ * changes. If the LiveData becomes active again later, the call is sent again.
+ *
  * @param <R>
  */
 public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<ApiResponse<R>>> {
     private final Type responseType;
-    public LiveDataCallAdapter(Type responseType) {
+    private final AppExecutors appExecutors;
+    private final long cancelDelayMillis;
+
+    public LiveDataCallAdapter(Type responseType, AppExecutors appExecutors,
+            long cancelDelayMillis) {
         this.responseType = responseType;
+        this.appExecutors = appExecutors;
+        this.cancelDelayMillis = cancelDelayMillis;
     }
 
     @Override
@@ -47,23 +59,57 @@ public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<ApiRespon
     @Override
     public LiveData<ApiResponse<R>> adapt(Call<R> call) {
         return new LiveData<ApiResponse<R>>() {
-            AtomicBoolean started = new AtomicBoolean(false);
+            // accessed on the main thread only
+            private Call<R> current = call;
+            private boolean started;
+            // changes whenever the LiveData becomes active so that older cancellations are skipped
+            private int activation;
+
+            private final AtomicBoolean responded = new AtomicBoolean(false);
+
             @Override
             protected void onActive() {
                 super.onActive();
-                if (started.compareAndSet(false, true)) {
-                    call.enqueue(new Callback<R>() {
-                        @Override
-                        public void onResponse(Call<R> call, Response<R> response) {
+                activation++;
+                if (!started) {
+                    started = true;
+                    enqueue(current);
+                }
+            }
+
+            @Override
+            protected void onInactive() {
+                super.onInactive();
+                int inactiveActivation = activation;
+                appExecutors.schedule(appExecutors.mainThread(), () -> {
+                    if (activation == inactiveActivation && started && !responded.get()) {
+                        current.cancel();
+                        // a call can only be executed once, keep a fresh one for the next
+                        // activation
+                        current = current.clone();
+                        started = false;
+                    }
+                }, cancelDelayMillis);
+            }
+
+            private void enqueue(Call<R> call) {
+                call.enqueue(new Callback<R>() {
+                    @Override
+                    public void onResponse(Call<R> call, Response<R> response) {
+                        if (!call.isCanceled()) {
+                            responded.set(true);
                             postValue(new ApiResponse<>(response));
                         }
+                    }
 
-                        @Override
-                        public void onFailure(Call<R> call, Throwable throwable) {
+                    @Override
+                    public void onFailure(Call<R> call, Throwable throwable) {
+                        if (!call.isCanceled()) {
+                            responded.set(true);
                             postValue(new ApiResponse<R>(throwable));
                         }
-                    });
-                }
+                    }
+                });
             }
         };
     }
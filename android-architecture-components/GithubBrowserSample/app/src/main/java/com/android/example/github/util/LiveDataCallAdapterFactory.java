@@ -16,6 +16,7 @@
 
 package com.android.example.github.util;
 
+import com.android.example.github.AppExecutors;
 import com.android.example.github.api.ApiResponse;
 
 import android.arch.lifecycle.LiveData;
@@ -28,6 +29,24 @@ import retrofit2.CallAdapter;
 import retrofit2.Retrofit;
 
 public class LiveDataCallAdapterFactory extends CallAdapter.Factory {
+    // long enough for an activity to be recreated after a configuration change
+    private static final long CANCEL_DELAY_MILLIS = 1000;
+
+    private final AppExecutors appExecutors;
+
+    private final long cancelDelayMillis;
+
+    public LiveDataCallAdapterFactory(AppExecutors appExecutors) {
+        this(appExecutors, CANCEL_DELAY_MILLIS);
+    }
+
+    /**
+     * @param cancelDelayMillis How long a LiveData can stay inactive before its call is cancelled.
+     */
+    public LiveDataCallAdapterFactory(AppExecutors appExecutors, long cancelDelayMillis) {
+        this.appExecutors = appExecutors;
+        this.cancelDelayMillis = cancelDelayMillis;
+    }
 
     @Override
     public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
@@ -43,6 +62,6 @@ public class LiveDataCallAdapterFactory extends CallAdapter.Factory {
             throw new IllegalArgumentException("resource must be parameterized");
         }
         Type bodyType = getParameterUpperBound(0, (ParameterizedType) observableType);
-        return new LiveDataCallAdapter<>(bodyType);
+        return new LiveDataCallAdapter<>(bodyType, appExecutors, cancelDelayMillis);
     }
 }
@@ -17,40 +17,48 @@
 package com.android.example.github.util;
 
 import android.os.SystemClock;
-import android.support.v4.util.ArrayMap;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class that decides whether we should fetch some data or not.
+ * <p>
+ * Callers for different keys do not block each other: timestamps are swapped atomically, so only
+ * one of the concurrent callers for a key gets {@code true}.
  */
 public class RateLimiter<KEY> {
-    private ArrayMap<KEY, Long> timestamps = new ArrayMap<>();
+    private final ConcurrentHashMap<KEY, Long> timestamps = new ConcurrentHashMap<>();
     private final long timeout;
 
     public RateLimiter(int timeout, TimeUnit timeUnit) {
         this.timeout = timeUnit.toMillis(timeout);
     }
 
-    public synchronized boolean shouldFetch(KEY key) {
-        Long lastFetched = timestamps.get(key);
+    public boolean shouldFetch(KEY key) {
         long now = now();
-        if (lastFetched == null) {
-            timestamps.put(key, now);
-            return true;
+        while (true) {
+            Long lastFetched = timestamps.get(key);
+            if (lastFetched == null) {
+                if (timestamps.putIfAbsent(key, now) == null) {
+                    return true;
+                }
+            } else if (now - lastFetched > timeout) {
+                if (timestamps.replace(key, lastFetched, now)) {
+                    return true;
+                }
+            } else {
+                return false;
+            }
+            // another caller updated the key, check its timestamp
         }
-        if (now - lastFetched > timeout) {
-            timestamps.put(key, now);
-            return true;
-        }
-        return false;
     }
 
     private long now() {
         return SystemClock.uptimeMillis();
     }
 
-    public synchronized void reset(KEY key) {
+    public void reset(KEY key) {
         timestamps.remove(key);
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.vo.Repo;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes {@link RepoSearchResponse} bodies straight from the response stream.
+ * <p>
+ * The {@code items} array is read one repo at a time with the {@link Repo} type adapter into a
+ * buffer sized for a page, while the ids are collected into a primitive array, so the search result
+ * can be built without walking the repo list again. Fields of the response we don't use are
+ * skipped without being decoded. A page with more repos than the buffer holds fails to decode
+ * instead of growing it.
+ * <p>
+ * Nothing is saved here: the repos and their search result rows are saved together by the caller,
+ * in one transaction.
+ * <p>
+ * Other types are left to the next converter factory.
+ */
+public class RepoSearchConverterFactory extends Converter.Factory {
+    /**
+     * The largest page GitHub returns for {@code per_page}.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // the default page size of GitHub searches
+    private static final int INITIAL_CAPACITY = 30;
+
+    private final Gson gson;
+
+    private final int maxItems;
+
+    /**
+     * Creates a factory that decodes pages of up to {@link #MAX_PAGE_SIZE} repos.
+     */
+    public RepoSearchConverterFactory(Gson gson) {
+        this(gson, MAX_PAGE_SIZE);
+    }
+
+    public RepoSearchConverterFactory(Gson gson, int maxItems) {
+        this.gson = gson;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+            Retrofit retrofit) {
+        if (type != RepoSearchResponse.class) {
+            return null;
+        }
+        return new RepoSearchConverter(gson, gson.getAdapter(Repo.class), maxItems);
+    }
+
+    static class RepoSearchConverter implements Converter<ResponseBody, RepoSearchResponse> {
+        private final Gson gson;
+        private final TypeAdapter<Repo> repoAdapter;
+        private final int maxItems;
+
+        RepoSearchConverter(Gson gson, TypeAdapter<Repo> repoAdapter, int maxItems) {
+            this.gson = gson;
+            this.repoAdapter = repoAdapter;
+            this.maxItems = maxItems;
+        }
+
+        @Override
+        public RepoSearchResponse convert(ResponseBody value) throws IOException {
+            try (JsonReader reader = gson.newJsonReader(value.charStream())) {
+                RepoSearchResponse response = new RepoSearchResponse();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "total_count":
+                            response.setTotal(reader.nextInt());
+                            break;
+                        case "items":
+                            readItems(reader, response);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return response;
+            }
+        }
+
+        private void readItems(JsonReader reader, RepoSearchResponse response)
+                throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                response.setItems(Collections.emptyList());
+                response.setRepoIds(new int[0]);
+                return;
+            }
+            int capacity = Math.min(INITIAL_CAPACITY, maxItems);
+            List<Repo> items = new ArrayList<>(capacity);
+            int[] ids = new int[capacity];
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (count == maxItems) {
+                    throw new IOException("search page has more than " + maxItems + " repos");
+                }
+                Repo repo = repoAdapter.read(reader);
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.min(count * 2, maxItems));
+                }
+                ids[count++] = repo.id;
+                items.add(repo);
+            }
+            reader.endArray();
+            response.setItems(items);
+            response.setRepoIds(Arrays.copyOf(ids, count));
+        }
+    }
+}
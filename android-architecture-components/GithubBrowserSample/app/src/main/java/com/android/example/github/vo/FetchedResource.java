@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Remembers when a remote resource was last fetched from the network, along with the validators
+ * to revalidate it with a conditional request.
+ * <p>
+ * The key is the fetch key of the {@code NetworkBoundResource} that loaded it, e.g.
+ * {@code repos/owner/name}.
+ */
+@Entity(primaryKeys = "resourceKey")
+public class FetchedResource {
+    @NonNull
+    public final String resourceKey;
+    public final long fetchedAt;
+    @Nullable
+    public final String etag;
+    @Nullable
+    public final String lastModified;
+
+    public FetchedResource(@NonNull String resourceKey, long fetchedAt, @Nullable String etag,
+            @Nullable String lastModified) {
+        this.resourceKey = resourceKey;
+        this.fetchedAt = fetchedAt;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+}
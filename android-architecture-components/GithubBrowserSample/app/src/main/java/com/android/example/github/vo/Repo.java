@@ -29,7 +29,7 @@ import javax.inject.Inject;
  * Using name/owner_login as primary key instead of id since name/owner_login is always available
  * vs id is not.
  */
-@Entity(indices = {@Index("id"), @Index("owner_login")},
+@Entity(indices = {@Index("id"), @Index({"owner_login", "stars"})},
     primaryKeys = {"name", "owner_login"})
 public class Repo {
     public static final int UNKNOWN_ID = -1;
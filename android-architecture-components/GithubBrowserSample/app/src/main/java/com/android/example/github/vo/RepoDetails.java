@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017 The Android Open Source Project
+ * Copyright (C) 2018 The Android Open Source Project
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,25 +14,25 @@
  * limitations under the License.
  */
 
-package com.android.example.github.db;
+package com.android.example.github.vo;
 
-import android.arch.persistence.room.TypeConverter;
-import android.arch.persistence.room.util.StringUtil;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import java.util.Collections;
 import java.util.List;
 
-public class GithubTypeConverters {
-    @TypeConverter
-    public static List<Integer> stringToIntList(String data) {
-        if (data == null) {
-            return Collections.emptyList();
-        }
-        return StringUtil.splitToIntList(data);
-    }
+/**
+ * A repo along with its contributors, loaded and saved together.
+ */
+public class RepoDetails {
+    @Nullable
+    public final Repo repo;
+    @NonNull
+    public final List<Contributor> contributors;
 
-    @TypeConverter
-    public static String intListToString(List<Integer> ints) {
-        return StringUtil.joinIntoString(ints);
+    public RepoDetails(@Nullable Repo repo, @Nullable List<Contributor> contributors) {
+        this.repo = repo;
+        this.contributors = contributors == null ? Collections.emptyList() : contributors;
     }
 }
@@ -1,45 +1,32 @@
-/*
- * Copyright (C) 2017 The Android Open Source Project
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
 
 package com.android.example.github.vo;
 
-import com.android.example.github.db.GithubTypeConverters;
-
 import android.arch.persistence.room.Entity;
-import android.arch.persistence.room.TypeConverters;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import java.util.List;
-
+/**
+ * The state of a search: how many results we have, how many GitHub has and the next page to fetch.
+ * The results themselves are stored as {@link RepoSearchResultItem}s.
+ */
 @Entity(primaryKeys = {"query"})
-@TypeConverters(GithubTypeConverters.class)
 public class RepoSearchResult {
     @NonNull
     public final String query;
-    public final List<Integer> repoIds;
+    // number of RepoSearchResultItems of this query, i.e. the position of the next one
+    public final int itemCount;
     public final int totalCount;
     @Nullable
     public final Integer next;
+    // when the results were last shown, the least recently shown ones are evicted first
+    public long accessedAt;
 
-    public RepoSearchResult(@NonNull String query, List<Integer> repoIds, int totalCount,
+    public RepoSearchResult(@NonNull String query, int itemCount, int totalCount,
             @Nullable Integer next) {
         this.query = query;
-        this.repoIds = repoIds;
+        this.itemCount = itemCount;
         this.totalCount = totalCount;
         this.next = next;
+        accessedAt = System.currentTimeMillis();
     }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.support.annotation.NonNull;
+
+/**
+ * A row of a {@link RepoSearchResult}: the repo at the given position of the results of a query.
+ * <p>
+ * Rows are keyed by (query, position) so a page of results is appended by inserting only its own
+ * rows and the results are read back in order with an index scan.
+ */
+@Entity(primaryKeys = {"query", "position"},
+        indices = {@Index("repoId")})
+public class RepoSearchResultItem {
+    @NonNull
+    public final String query;
+    public final int position;
+    public final int repoId;
+
+    public RepoSearchResultItem(@NonNull String query, int position, int repoId) {
+        this.query = query;
+        this.position = position;
+        this.repoId = repoId;
+    }
+}
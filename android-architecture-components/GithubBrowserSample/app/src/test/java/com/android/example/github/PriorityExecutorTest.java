@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github;
+
+import com.android.example.github.PriorityExecutor.Priority;
+import com.android.example.github.PriorityExecutor.Rejectable;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class PriorityExecutorTest {
+    private PriorityExecutor executor;
+
+    private CountDownLatch blocker;
+
+    private List<String> ran;
+
+    /**
+     * Creates a single thread executor and keeps its thread busy so that the next tasks are
+     * queued until {@link #drain()} is called.
+     */
+    private void start(int capacity) throws InterruptedException {
+        executor = new PriorityExecutor("test", 1, capacity);
+        ran = Collections.synchronizedList(new ArrayList<>());
+        blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @After
+    public void release() {
+        if (blocker != null) {
+            blocker.countDown();
+        }
+    }
+
+    @Test
+    public void runsByPriorityThenInOrder() throws InterruptedException {
+        start(10);
+        executor.execute(Priority.BACKGROUND, record("background"));
+        executor.execute(Priority.PREFETCH, record("prefetch1"));
+        executor.execute(Priority.USER_VISIBLE, record("visible"));
+        executor.execute(Priority.PREFETCH, record("prefetch2"));
+        drain();
+        assertThat(ran, is(Arrays.asList("visible", "prefetch1", "prefetch2", "background")));
+    }
+
+    @Test
+    public void lowestPriorityIsRejectedWhenFull() throws InterruptedException {
+        start(2);
+        AtomicBoolean rejected = new AtomicBoolean();
+        executor.execute(Priority.BACKGROUND, rejectable("background", rejected));
+        executor.execute(Priority.PREFETCH, record("prefetch1"));
+        executor.execute(Priority.PREFETCH, record("prefetch2"));
+        assertThat(rejected.get(), is(true));
+        assertThat(executor.getRejectedCount(), is(1L));
+
+        // same priority as everything queued, the new task is rejected
+        executor.execute(Priority.PREFETCH, record("prefetch3"));
+        assertThat(executor.getRejectedCount(), is(2L));
+        drain();
+        assertThat(ran, is(Arrays.asList("prefetch1", "prefetch2")));
+    }
+
+    @Test
+    public void userVisibleIsNeverRejected() throws InterruptedException {
+        start(2);
+        executor.execute(record("visible1"));
+        executor.execute(record("visible2"));
+        executor.execute(record("visible3"));
+        assertThat(executor.getQueueDepth(), is(3));
+        assertThat(executor.getMaxQueueDepth(), is(3));
+        assertThat(executor.getRejectedCount(), is(0L));
+        drain();
+        assertThat(ran, is(Arrays.asList("visible1", "visible2", "visible3")));
+    }
+
+    @Test
+    public void withPriority() throws InterruptedException {
+        start(2);
+        executor.withPriority(Priority.BACKGROUND).execute(record("background"));
+        executor.withPriority(Priority.USER_VISIBLE).execute(record("visible"));
+        drain();
+        assertThat(ran, is(Arrays.asList("visible", "background")));
+    }
+
+    @Test
+    public void metrics() throws InterruptedException {
+        start(2);
+        executor.execute(record("visible"));
+        drain();
+        assertThat(ran, is(Collections.singletonList("visible")));
+        // the blocking task, the recorded one and the one used to drain, which may still be
+        // finishing
+        long deadline = System.currentTimeMillis() + 1000;
+        while (executor.getCompletedCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.getCompletedCount(), is(3L));
+        assertThat(executor.getMaxQueueDepth(), is(1));
+        assertThat(executor.getRejectedCount(), is(0L));
+    }
+
+    private Runnable record(String name) {
+        return () -> ran.add(name);
+    }
+
+    private Rejectable rejectable(String name, AtomicBoolean rejected) {
+        return new Rejectable() {
+            @Override
+            public void onRejected() {
+                rejected.set(true);
+            }
+
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    /**
+     * Unblocks the executor and waits for everything queued to complete.
+     */
+    private void drain() throws InterruptedException {
+        blocker.countDown();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (executor.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // runs after the task that may still be running on the only thread
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        assertThat(done.await(1, TimeUnit.SECONDS), is(true));
+    }
+}
@@ -22,6 +22,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+
 import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 import retrofit2.Response;
@@ -41,7 +43,15 @@ public class ApiResponseTest {
         ApiResponse<String> apiResponse = new ApiResponse<>(exception);
         assertThat(apiResponse.links, notNullValue());
         assertThat(apiResponse.body, nullValue());
-        assertThat(apiResponse.code, is(500));
+        assertThat(apiResponse.code, is(ApiResponse.CALL_FAILURE));
+        assertThat(apiResponse.errorMessage, is("foo"));
+    }
+
+    @Test
+    public void ioException() {
+        ApiResponse<String> apiResponse = new ApiResponse<>(new IOException("foo"));
+        assertThat(apiResponse.code, is(ApiResponse.NETWORK_FAILURE));
+        assertThat(apiResponse.isSuccessful(), is(false));
         assertThat(apiResponse.errorMessage, is("foo"));
     }
 
@@ -79,6 +89,34 @@ public class ApiResponseTest {
         assertThat(response.getNextPage(), nullValue());
     }
 
+    @Test
+    public void validators() {
+        okhttp3.Headers headers = okhttp3.Headers.of("ETag", "\"abc\"",
+                "Last-Modified", "Thu, 05 Jul 2018 15:31:30 GMT");
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
+        assertThat(response.etag, is("\"abc\""));
+        assertThat(response.lastModified, is("Thu, 05 Jul 2018 15:31:30 GMT"));
+        assertThat(response.isNotModified(), is(false));
+    }
+
+    @Test
+    public void rateLimit() {
+        okhttp3.Headers headers = okhttp3.Headers.of("X-RateLimit-Limit", "60",
+                "X-RateLimit-Remaining", "56", "X-RateLimit-Reset", "1372700873");
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
+        assertThat(response.rateLimit.limit, is(60));
+        assertThat(response.rateLimit.remaining, is(56));
+        assertThat(response.rateLimit.resetAtMillis, is(1372700873000L));
+    }
+
+    @Test
+    public void badRateLimit() {
+        okhttp3.Headers headers = okhttp3.Headers.of("X-RateLimit-Limit", "60",
+                "X-RateLimit-Remaining", "x", "X-RateLimit-Reset", "1372700873");
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
+        assertThat(response.rateLimit, nullValue());
+    }
+
     @Test
     public void error() {
         ApiResponse<String> response = new ApiResponse<String>(Response.error(400,
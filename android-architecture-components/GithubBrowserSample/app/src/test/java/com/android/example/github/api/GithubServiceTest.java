@@ -16,7 +16,11 @@
 
 package com.android.example.github.api;
 
+import com.google.gson.Gson;
+
+import com.android.example.github.util.InstantAppExecutors;
 import com.android.example.github.util.LiveDataCallAdapterFactory;
+import com.android.example.github.util.RepoSearchConverterFactory;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.User;
@@ -65,8 +69,9 @@ public class GithubServiceTest {
         mockWebServer = new MockWebServer();
         service = new Retrofit.Builder()
                 .baseUrl(mockWebServer.url("/"))
+                .addConverterFactory(new RepoSearchConverterFactory(new Gson()))
                 .addConverterFactory(GsonConverterFactory.create())
-                .addCallAdapterFactory(new LiveDataCallAdapterFactory())
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory(new InstantAppExecutors()))
                 .build()
                 .create(GithubService.class);
     }
@@ -79,7 +84,7 @@ public class GithubServiceTest {
     @Test
     public void getUser() throws IOException, InterruptedException {
         enqueueResponse("user-yigit.json");
-        User yigit = getValue(service.getUser("yigit")).body;
+        User yigit = getValue(service.getUser("yigit", Collections.emptyMap())).body;
 
         RecordedRequest request = mockWebServer.takeRequest();
         assertThat(request.getPath(), is("/users/yigit"));
@@ -90,10 +95,23 @@ public class GithubServiceTest {
         assertThat(yigit.blog, is("birbit.com"));
     }
 
+    @Test
+    public void conditionalRequest() throws IOException, InterruptedException {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+        ApiResponse<User> response = getValue(service.getUser("yigit",
+                Collections.singletonMap("If-None-Match", "\"abc\"")));
+
+        RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getHeader("If-None-Match"), is("\"abc\""));
+        assertThat(response.isNotModified(), is(true));
+        assertThat(response.isSuccessful(), is(false));
+    }
+
     @Test
     public void getRepos() throws IOException, InterruptedException {
         enqueueResponse("repos-yigit.json");
-        List<Repo> repos = getValue(service.getRepos("yigit")).body;
+        List<Repo> repos = getValue(service.getRepos("yigit", Collections.emptyMap()))
+                .body;
 
         RecordedRequest request = mockWebServer.takeRequest();
         assertThat(request.getPath(), is("/users/yigit/repos"));
@@ -116,7 +134,7 @@ public class GithubServiceTest {
     public void getContributors() throws IOException, InterruptedException {
         enqueueResponse("contributors.json");
         List<Contributor> contributors = getValue(
-                service.getContributors("foo", "bar")).body;
+                service.getContributors("foo", "bar", Collections.emptyMap())).body;
         assertThat(contributors.size(), is(3));
         Contributor yigit = contributors.get(0);
         assertThat(yigit.getLogin(), is("yigit"));
@@ -139,11 +157,41 @@ public class GithubServiceTest {
         assertThat(response, notNullValue());
         assertThat(response.body.getTotal(), is(41));
         assertThat(response.body.getItems().size(), is(30));
+        assertThat(response.body.getRepoIds().length, is(30));
+        assertThat(response.body.getRepoIds()[0], is(63478084));
+        assertThat(response.body.getRepoIds()[0], is(response.body.getItems().get(0).id));
         assertThat(response.links.get("next"),
                 is("https://api.github.com/search/repositories?q=foo&page=2"));
         assertThat(response.getNextPage(), is(2));
     }
 
+    @Test
+    public void searchPageOverBufferFails() throws IOException, InterruptedException {
+        service = new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .addConverterFactory(new RepoSearchConverterFactory(new Gson(), 10))
+                .addConverterFactory(GsonConverterFactory.create())
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory(new InstantAppExecutors()))
+                .build()
+                .create(GithubService.class);
+        enqueueResponse("search.json");
+        ApiResponse<RepoSearchResponse> response = getValue(service.searchRepos("foo"));
+
+        assertThat(response.isSuccessful(), is(false));
+        assertThat(response.errorMessage, is("search page has more than 10 repos"));
+    }
+
+    @Test
+    public void searchWithNullItems() throws IOException, InterruptedException {
+        mockWebServer.enqueue(new MockResponse().setBody("{\"total_count\":0,\"items\":null}"));
+        ApiResponse<RepoSearchResponse> response = getValue(service.searchRepos("foo"));
+
+        assertThat(response.isSuccessful(), is(true));
+        assertThat(response.body.getTotal(), is(0));
+        assertThat(response.body.getItems().isEmpty(), is(true));
+        assertThat(response.body.getRepoIds().length, is(0));
+    }
+
     private void enqueueResponse(String fileName) throws IOException {
         enqueueResponse(fileName, Collections.emptyMap());
     }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class HttpCacheStatsTest {
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer mockWebServer;
+
+    private OkHttpClient client;
+
+    private HttpCacheStats stats;
+
+    @Before
+    public void init() throws IOException {
+        mockWebServer = new MockWebServer();
+        Cache cache = new Cache(cacheDir.getRoot(), 1024 * 1024);
+        client = new OkHttpClient.Builder().cache(cache).build();
+        stats = new HttpCacheStats(cache);
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void hitAndMiss() throws IOException {
+        mockWebServer.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setBody("foo"));
+        assertThat(get("/users/foo"), is("foo"));
+        assertThat(stats.missCount(), is(1));
+        assertThat(stats.hitCount(), is(0));
+
+        assertThat(get("/users/foo"), is("foo"));
+        assertThat(stats.requestCount(), is(2));
+        assertThat(stats.hitCount(), is(1));
+        assertThat(stats.missCount(), is(1));
+        assertThat(stats.networkCount(), is(1));
+    }
+
+    @Test
+    public void conditionalHit() throws IOException {
+        mockWebServer.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "no-cache")
+                .setHeader("ETag", "\"abc\"")
+                .setBody("foo"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+        assertThat(get("/users/foo"), is("foo"));
+        assertThat(get("/users/foo"), is("foo"));
+        assertThat(stats.hitCount(), is(1));
+        assertThat(stats.networkCount(), is(2));
+    }
+
+    private String get(String path) throws IOException {
+        Request request = new Request.Builder().url(mockWebServer.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import com.android.example.github.PriorityExecutor.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class TokenBucketTest {
+    private long now;
+
+    private TokenBucket bucket;
+
+    @Before
+    public void init() {
+        now = 1000;
+        bucket = new TokenBucket("test") {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void unknownLimit() {
+        assertThat(bucket.getLimit(), is(-1));
+        assertThat(bucket.tryAcquire(Priority.BACKGROUND), is(true));
+    }
+
+    @Test
+    public void shedsByPriority() {
+        bucket.update(new RateLimit(10, 6, 5000));
+        assertThat(bucket.tryAcquire(Priority.BACKGROUND), is(true));
+        bucket.consume();
+        // 5 left, half of the limit is kept for prefetch and user visible requests
+        assertThat(bucket.tryAcquire(Priority.BACKGROUND), is(false));
+        assertThat(bucket.tryAcquire(Priority.PREFETCH), is(true));
+
+        bucket.update(new RateLimit(10, 2, 5000));
+        assertThat(bucket.tryAcquire(Priority.PREFETCH), is(false));
+        assertThat(bucket.tryAcquire(Priority.USER_VISIBLE), is(true));
+        assertThat(bucket.getShedCount(), is(2L));
+    }
+
+    @Test
+    public void outOfOrderResponses() {
+        bucket.update(new RateLimit(10, 3, 5000));
+        bucket.update(new RateLimit(10, 4, 5000));
+        assertThat(bucket.getRemaining(), is(3));
+        // a response from an older window
+        bucket.update(new RateLimit(10, 9, 4000));
+        assertThat(bucket.getRemaining(), is(3));
+    }
+
+    @Test
+    public void refilledAtReset() {
+        bucket.update(new RateLimit(10, 0, 5000));
+        assertThat(bucket.tryAcquire(Priority.PREFETCH), is(false));
+        now = 5000;
+        assertThat(bucket.getRemaining(), is(10));
+        assertThat(bucket.tryAcquire(Priority.BACKGROUND), is(true));
+    }
+
+    @Test
+    public void consume() {
+        bucket.update(new RateLimit(10, 1, 5000));
+        bucket.consume();
+        bucket.consume();
+        assertThat(bucket.getRemaining(), is(0));
+        assertThat(bucket.getAcquiredCount(), is(2L));
+    }
+}
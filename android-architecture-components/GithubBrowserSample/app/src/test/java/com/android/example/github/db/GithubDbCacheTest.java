@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.User;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("unchecked")
+@RunWith(JUnit4.class)
+public class GithubDbCacheTest {
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    private GithubDbCache dbCache;
+
+    private KeyedInvalidationTracker.WrittenKeysObserver observer;
+
+    @Before
+    public void init() {
+        KeyedInvalidationTracker tracker = mock(KeyedInvalidationTracker.class);
+        dbCache = new GithubDbCache(tracker);
+        ArgumentCaptor<KeyedInvalidationTracker.WrittenKeysObserver> captor =
+                ArgumentCaptor.forClass(KeyedInvalidationTracker.WrittenKeysObserver.class);
+        verify(tracker).addWrittenKeysObserver(captor.capture());
+        observer = captor.getValue();
+    }
+
+    @Test
+    public void trackKeepsLatestValue() {
+        MutableLiveData<Repo> source = new MutableLiveData<>();
+        dbCache.repos().track("foo/bar", source).observeForever(mock(Observer.class));
+        assertThat(dbCache.repos().get("foo/bar"), nullValue());
+
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        source.setValue(repo);
+        assertThat(dbCache.repos().get("foo/bar"), is(repo));
+
+        // deleted
+        source.setValue(null);
+        assertThat(dbCache.repos().get("foo/bar"), nullValue());
+    }
+
+    @Test
+    public void writtenKeysAreRemoved() {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        Repo other = TestUtil.createRepo("foo", "baz", "desc");
+        User user = TestUtil.createUser("foo");
+        List<Contributor> contributors = Collections.singletonList(
+                TestUtil.createContributor(repo, "baz", 3));
+        dbCache.repos().put("foo/bar", repo);
+        dbCache.repos().put("foo/baz", other);
+        dbCache.users().put("foo", user);
+        dbCache.contributors().put("foo/bar", contributors);
+
+        // the repo triggers also log the owner
+        observer.onWritten("repo", new HashSet<>(Arrays.asList("foo/bar", "foo")));
+        assertThat(dbCache.repos().get("foo/bar"), nullValue());
+        assertThat(dbCache.repos().get("foo/baz"), is(other));
+        assertThat(dbCache.users().get("foo"), is(user));
+        assertThat(dbCache.contributors().get("foo/bar"), is(contributors));
+
+        observer.onWritten("contributor", Collections.singleton("foo/bar"));
+        assertThat(dbCache.contributors().get("foo/bar"), nullValue());
+        assertThat(dbCache.users().get("foo"), is(user));
+
+        observer.onWritten("user", Collections.singleton("foo"));
+        assertThat(dbCache.users().get("foo"), nullValue());
+    }
+
+    @Test
+    public void stats() {
+        User user = TestUtil.createUser("foo");
+        dbCache.users().put("foo", user);
+        dbCache.users().get("foo");
+        dbCache.users().get("foo");
+        dbCache.users().get("bar");
+        dbCache.users().get("baz");
+        assertThat(dbCache.users().getHitCount(), is(2));
+        assertThat(dbCache.users().getMissCount(), is(2));
+        assertThat(dbCache.users().getHitRatio(), is(0.5f));
+        assertThat(dbCache.users().getSizeBytes() > 0, is(true));
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        // a description much larger than what a table can hold
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 100 * 1024; i++) {
+            description.append('a');
+        }
+        for (int i = 0; i < 3; i++) {
+            dbCache.repos().put("foo/" + i,
+                    TestUtil.createRepo("foo", "" + i, description.toString()));
+        }
+        // the least recently used one is evicted
+        assertThat(dbCache.repos().get("foo/0"), nullValue());
+        assertThat(dbCache.repos().get("foo/2").name, is("2"));
+        assertThat(dbCache.repos().getSizeBytes() <= 256 * 1024, is(true));
+    }
+}
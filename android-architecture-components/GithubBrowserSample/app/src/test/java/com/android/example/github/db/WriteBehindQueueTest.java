@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.AppExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(JUnit4.class)
+public class WriteBehindQueueTest {
+    private final List<Runnable> diskTasks = new ArrayList<>();
+
+    private final List<String> log = new ArrayList<>();
+
+    private WriteBehindQueue queue;
+
+    @Before
+    public void init() {
+        AppExecutors appExecutors = new AppExecutors(diskTasks::add, Runnable::run,
+                Runnable::run, Runnable::run);
+        queue = new WriteBehindQueue(appExecutors, null, 0);
+    }
+
+    @Test
+    public void writesBeforeFlushAreBatched() {
+        queue.enqueue("users/foo", () -> log.add("user"));
+        queue.enqueue("repos/foo/bar", () -> log.add("repo"));
+        assertThat(diskTasks.size(), is(1));
+        assertThat(queue.getPendingCount(), is(2));
+
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("user", "repo")));
+        assertThat(queue.getFlushCount(), is(1L));
+        assertThat(queue.getWriteCount(), is(2L));
+        assertThat(queue.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void sameKeyIsReplaced() {
+        queue.enqueue("users/foo", () -> log.add("user1"));
+        queue.enqueue("repos/foo/bar", () -> log.add("repo"));
+        queue.enqueue("users/foo", () -> log.add("user2"));
+        runDiskTasks();
+        // the replacing write keeps the position of the first one
+        assertThat(log, is(Arrays.asList("user2", "repo")));
+        assertThat(queue.getDedupedCount(), is(1L));
+    }
+
+    @Test
+    public void nullKeysAreNotReplaced() {
+        queue.enqueue(null, () -> log.add("first"));
+        queue.enqueue(null, () -> log.add("second"));
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("first", "second")));
+        assertThat(queue.getDedupedCount(), is(0L));
+    }
+
+    @Test
+    public void readerRunsAfterPendingWrites() {
+        queue.enqueue("users/foo", () -> log.add("user"));
+        queue.runAfterWrites(() -> log.add("read"));
+        queue.enqueue("repos/foo/bar", () -> log.add("repo"));
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("user", "repo", "read")));
+    }
+
+    @Test
+    public void readerWithoutPendingWrites() {
+        queue.runAfterWrites(() -> log.add("read"));
+        assertThat(diskTasks.size(), is(1));
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("read")));
+        assertThat(queue.getFlushCount(), is(0L));
+    }
+
+    @Test
+    public void writeDuringFlushGoesToNextBatch() {
+        queue.enqueue("users/foo", () -> {
+            log.add("user");
+            queue.enqueue("repos/foo/bar", () -> log.add("repo"));
+            queue.runAfterWrites(() -> log.add("read"));
+        });
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("user", "repo", "read")));
+        assertThat(queue.getFlushCount(), is(2L));
+    }
+
+    @Test
+    public void failedWriteIsDropped() {
+        queue.enqueue("users/foo", () -> {
+            throw new IllegalStateException("constraint failed");
+        });
+        queue.enqueue("repos/foo/bar", () -> log.add("repo"));
+        queue.runAfterWrites(() -> log.add("read"));
+        runDiskTasks();
+        assertThat(log, is(Arrays.asList("repo", "read")));
+        assertThat(queue.getFailedCount(), is(1L));
+    }
+
+    @Test
+    public void failedBatchIsAppliedOneByOne() {
+        GithubDb db = mock(GithubDb.class);
+        queue = new WriteBehindQueue(new AppExecutors(diskTasks::add, Runnable::run,
+                Runnable::run, Runnable::run), db, 0);
+        queue.enqueue("users/foo", () -> log.add("user"));
+        queue.enqueue("repos/foo/bar", () -> {
+            throw new IllegalStateException("constraint failed");
+        });
+        queue.enqueue("repos/foo/baz", () -> log.add("repo"));
+        queue.runAfterWrites(() -> log.add("read"));
+        runDiskTasks();
+        // the batch stops at the failing write and is rolled back, the others are applied again
+        assertThat(log, is(Arrays.asList("user", "user", "repo", "read")));
+        verify(db, times(4)).beginTransaction();
+        verify(db, times(2)).setTransactionSuccessful();
+        assertThat(queue.getFailedCount(), is(1L));
+    }
+
+    private void runDiskTasks() {
+        while (!diskTasks.isEmpty()) {
+            diskTasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.api.ApiQuota;
+import com.android.example.github.api.ApiResponse;
+import com.android.example.github.db.WriteBehindQueue;
+import com.android.example.github.util.ApiUtil;
+import com.android.example.github.util.InstantAppExecutors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("unchecked")
+@RunWith(JUnit4.class)
+public class FetchCoordinatorTest {
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    private FetchCoordinator coordinator;
+
+    private MutableLiveData<ApiResponse<String>> call;
+
+    private AtomicInteger createdCalls;
+
+    private AtomicInteger savedResponses;
+
+    @Before
+    public void init() {
+        coordinator = new FetchCoordinator(new InstantAppExecutors());
+        call = new MutableLiveData<>();
+        createdCalls = new AtomicInteger();
+        savedResponses = new AtomicInteger();
+    }
+
+    private LiveData<ApiResponse<String>> fetch(String key) {
+        return coordinator.fetch(key, () -> {
+            createdCalls.incrementAndGet();
+            return call;
+        }, response -> savedResponses.incrementAndGet());
+    }
+
+    @Test
+    public void sameKeySharesCallAndSave() {
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        LiveData<ApiResponse<String>> second = fetch("users/foo");
+        assertThat(first, sameInstance(second));
+        assertThat(createdCalls.get(), is(1));
+
+        Observer<ApiResponse<String>> observer1 = mock(Observer.class);
+        Observer<ApiResponse<String>> observer2 = mock(Observer.class);
+        first.observeForever(observer1);
+        second.observeForever(observer2);
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo"));
+        call.setValue(response);
+
+        assertThat(savedResponses.get(), is(1));
+        verify(observer1).onChanged(response);
+        verify(observer2).onChanged(response);
+        assertThat(coordinator.inFlightCount(), is(0));
+    }
+
+    @Test
+    public void differentKeys() {
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        LiveData<ApiResponse<String>> second = fetch("users/bar");
+        assertThat(first, not(sameInstance(second)));
+        assertThat(createdCalls.get(), is(2));
+    }
+
+    @Test
+    public void nullKeyIsNotShared() {
+        LiveData<ApiResponse<String>> first = fetch(null);
+        LiveData<ApiResponse<String>> second = fetch(null);
+        assertThat(first, not(sameInstance(second)));
+        assertThat(coordinator.inFlightCount(), is(0));
+    }
+
+    @Test
+    public void newFetchAfterCompletion() {
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        first.observeForever(mock(Observer.class));
+        call.setValue(new ApiResponse<>(Response.success("foo")));
+
+        LiveData<ApiResponse<String>> second = fetch("users/foo");
+        assertThat(first, not(sameInstance(second)));
+        assertThat(createdCalls.get(), is(2));
+    }
+
+    @Test
+    public void abandonedFetchIsNotShared() {
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        first.observeForever(observer);
+        first.removeObserver(observer);
+        assertThat(coordinator.inFlightCount(), is(0));
+
+        LiveData<ApiResponse<String>> second = fetch("users/foo");
+        assertThat(first, not(sameInstance(second)));
+        assertThat(createdCalls.get(), is(2));
+    }
+
+    @Test
+    public void notModifiedIsNotSaved() {
+        LiveData<ApiResponse<String>> first = coordinator.fetch("users/foo",
+                ApiUtil::notModifiedCall, response -> savedResponses.incrementAndGet());
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        first.observeForever(observer);
+        verify(observer).onChanged(argThat(ApiResponse::isNotModified));
+        assertThat(savedResponses.get(), is(0));
+        assertThat(coordinator.inFlightCount(), is(0));
+    }
+
+    @Test
+    public void serverErrorIsRetried() {
+        InstantAppExecutors appExecutors = new InstantAppExecutors();
+        // retried right away
+        coordinator = new FetchCoordinator(appExecutors,
+                new WriteBehindQueue(appExecutors, null, 0), new ApiQuota(),
+                new RetryPolicy(2, 0, 0, TimeUnit.MILLISECONDS), new StageTimings(), null);
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        first.observeForever(observer);
+        MutableLiveData<ApiResponse<String>> failedCall = call;
+        call = new MutableLiveData<>();
+        failedCall.setValue(new ApiResponse<>(Response.error(503,
+                ResponseBody.create(MediaType.parse("txt"), "unavailable"))));
+        assertThat(createdCalls.get(), is(2));
+        verify(observer, never()).onChanged(any());
+
+        // the second attempt is the last one
+        ApiResponse<String> response = new ApiResponse<>(Response.error(503,
+                ResponseBody.create(MediaType.parse("txt"), "unavailable")));
+        call.setValue(response);
+        assertThat(createdCalls.get(), is(2));
+        verify(observer).onChanged(response);
+        assertThat(coordinator.inFlightCount(), is(0));
+    }
+
+    @Test
+    public void errorIsNotSaved() {
+        LiveData<ApiResponse<String>> first = fetch("users/foo");
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        first.observeForever(observer);
+        ApiResponse<String> response = new ApiResponse<>(Response.error(500,
+                ResponseBody.create(MediaType.parse("txt"), "error")));
+        call.setValue(response);
+        verify(observer).onChanged(response);
+        assertThat(savedResponses.get(), is(0));
+        assertThat(coordinator.inFlightCount(), is(0));
+    }
+}
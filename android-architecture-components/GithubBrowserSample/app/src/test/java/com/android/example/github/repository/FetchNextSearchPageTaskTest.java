@@ -16,10 +16,12 @@
 
 package com.android.example.github.repository;
 
+import com.android.example.github.PriorityExecutor.Priority;
 import com.android.example.github.api.GithubService;
 import com.android.example.github.api.RepoSearchResponse;
 import com.android.example.github.db.GithubDb;
 import com.android.example.github.db.RepoDao;
+import com.android.example.github.util.InstantAppExecutors;
 import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.RepoSearchResult;
@@ -30,14 +32,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
 import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.Observer;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.Headers;
 import okhttp3.MediaType;
@@ -45,7 +48,12 @@ import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Response;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -74,7 +82,8 @@ public class FetchNextSearchPageTaskTest {
         db = mock(GithubDb.class);
         repoDao = mock(RepoDao.class);
         when(db.repoDao()).thenReturn(repoDao);
-        task = new FetchNextSearchPageTask("foo", service, db);
+        task = new FetchNextSearchPageTask("foo", service, db, new InstantAppExecutors(),
+                Priority.USER_VISIBLE, RetryPolicy.NONE, new StageTimings());
         //noinspection unchecked
         observer = mock(Observer.class);
         task.getLiveData().observeForever(observer);
@@ -124,6 +133,11 @@ public class FetchNextSearchPageTaskTest {
         when(service.searchRepos("foo", 1)).thenReturn(call);
         task.run();
         verify(repoDao).insertRepos(repos);
+        verify(repoDao).insertSearchResultItems("foo", 30, result.getRepoIds());
+        ArgumentCaptor<RepoSearchResult> merged = ArgumentCaptor.forClass(RepoSearchResult.class);
+        verify(repoDao).insert(merged.capture());
+        assertThat(merged.getValue().itemCount, is(30 + repos.size()));
+        assertThat(merged.getValue().next, is(2));
         verify(observer).onChanged(Resource.success(true));
     }
 
@@ -148,9 +162,73 @@ public class FetchNextSearchPageTaskTest {
         verify(observer).onChanged(Resource.error("bar", true));
     }
 
+    @Test
+    public void serverErrorIsRetried() throws IOException {
+        // retried right away
+        task = new FetchNextSearchPageTask("foo", service, db, new InstantAppExecutors(),
+                Priority.USER_VISIBLE, new RetryPolicy(3, 0, 0, TimeUnit.MILLISECONDS),
+                new StageTimings());
+        task.getLiveData().observeForever(observer);
+        createDbResult(1);
+        RepoSearchResponse result = new RepoSearchResponse();
+        result.setTotal(10);
+        List<Repo> repos = TestUtil.createRepos(10, "a", "b", "c");
+        result.setItems(repos);
+        Call<RepoSearchResponse> call = createCall(result, null);
+        when(call.execute()).thenReturn(Response.error(502, ResponseBody.create(
+                MediaType.parse("txt"), "bad gateway"))).thenThrow(new IOException("reset"))
+                .thenReturn(Response.success(result));
+        when(service.searchRepos("foo", 1)).thenReturn(call);
+        task.run();
+        verify(service, times(3)).searchRepos("foo", 1);
+        verify(repoDao).insertRepos(repos);
+        verify(observer).onChanged(Resource.success(false));
+        verifyNoMoreInteractions(observer);
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws IOException {
+        task = new FetchNextSearchPageTask("foo", service, db, new InstantAppExecutors(),
+                Priority.USER_VISIBLE, new RetryPolicy(3, 0, 0, TimeUnit.MILLISECONDS),
+                new StageTimings());
+        task.getLiveData().observeForever(observer);
+        createDbResult(1);
+        Call<RepoSearchResponse> call = mock(Call.class);
+        when(call.execute()).thenReturn(Response.error(422, ResponseBody.create(
+                MediaType.parse("txt"), "bar")));
+        when(service.searchRepos("foo", 1)).thenReturn(call);
+        task.run();
+        verify(service).searchRepos("foo", 1);
+        verify(observer).onChanged(Resource.error("bar", true));
+    }
+
+    @Test
+    public void cancelledBeforeRun() {
+        createDbResult(1);
+        task.getLiveData().removeObserver(observer);
+        assertThat(task.isCancelled(), is(true));
+        task.run();
+        verifyNoMoreInteractions(service);
+        verify(repoDao, never()).insertRepos(anyList());
+    }
+
+    @Test
+    public void cancelledWhileRunning() throws IOException {
+        createDbResult(1);
+        Call<RepoSearchResponse> call = mock(Call.class);
+        when(call.execute()).then(invocation -> {
+            task.getLiveData().removeObserver(observer);
+            throw new IOException("Canceled");
+        });
+        when(service.searchRepos("foo", 1)).thenReturn(call);
+        task.run();
+        verify(call).cancel();
+        verify(repoDao, never()).insertRepos(anyList());
+        verifyNoMoreInteractions(observer);
+    }
+
     private void createDbResult(Integer nextPage) {
-        RepoSearchResult result = new RepoSearchResult("foo", Collections.emptyList(),
-                0, nextPage);
+        RepoSearchResult result = new RepoSearchResult("foo", 30, 100, nextPage);
         when(repoDao.findSearchResult("foo")).thenReturn(result);
     }
 
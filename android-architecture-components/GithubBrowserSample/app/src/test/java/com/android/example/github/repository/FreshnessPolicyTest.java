@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.repository;
+
+import com.android.example.github.repository.FreshnessPolicy.Freshness;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class FreshnessPolicyTest {
+    private final FreshnessPolicy policy = new FreshnessPolicy(10, 20, TimeUnit.MILLISECONDS);
+
+    @Test
+    public void unknown() {
+        assertThat(policy.freshness(null, 100), is(Freshness.STALE));
+    }
+
+    @Test
+    public void fresh() {
+        assertThat(policy.freshness(100L, 100), is(Freshness.FRESH));
+        assertThat(policy.freshness(100L, 110), is(Freshness.FRESH));
+    }
+
+    @Test
+    public void stale() {
+        assertThat(policy.freshness(100L, 111), is(Freshness.STALE));
+        assertThat(policy.freshness(100L, 130), is(Freshness.STALE));
+    }
+
+    @Test
+    public void expired() {
+        assertThat(policy.freshness(100L, 131), is(Freshness.EXPIRED));
+    }
+
+    @Test
+    public void fromTheFuture() {
+        assertThat(policy.freshness(100L, 50), is(Freshness.STALE));
+    }
+}
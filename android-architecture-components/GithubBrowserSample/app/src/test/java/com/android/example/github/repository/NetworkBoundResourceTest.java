@@ -92,7 +92,8 @@ public class NetworkBoundResourceTest {
         AppExecutors appExecutors = useRealExecutors
                 ? countingAppExecutors.getAppExecutors()
                 : new InstantAppExecutors();
-        networkBoundResource = new NetworkBoundResource<Foo, Foo>(appExecutors) {
+        networkBoundResource = new NetworkBoundResource<Foo, Foo>(
+                new FetchCoordinator(appExecutors)) {
             @Override
             protected void saveCallResult(@NonNull Foo item) {
                 saveCallResult.apply(item);
@@ -16,18 +16,25 @@
 
 package com.android.example.github.repository;
 
+import com.android.example.github.api.ApiQuota;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
 import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.db.CacheEvictor;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.GithubDbCache;
+import com.android.example.github.db.KeyedInvalidationTracker;
 import com.android.example.github.db.RepoDao;
+import com.android.example.github.db.RepoSearchIndex;
 import com.android.example.github.util.AbsentLiveData;
 import com.android.example.github.util.InstantAppExecutors;
 import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
+import com.android.example.github.vo.Status;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -35,6 +42,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
 
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
 import android.arch.lifecycle.LiveData;
@@ -46,14 +55,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import retrofit2.Response;
 
 import static com.android.example.github.util.ApiUtil.successCall;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.Matchers.anyObject;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -67,28 +83,41 @@ public class RepoRepositoryTest {
     private RepoRepository repository;
     private RepoDao dao;
     private GithubService service;
+    private GithubDbCache dbCache;
+    private RepoSearchIndex searchIndex;
+    private GithubDb db;
+    private KeyedInvalidationTracker invalidationTracker;
+    private CacheEvictor cacheEvictor;
     @Rule
     public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
     @Before
     public void init() {
         dao = mock(RepoDao.class);
         service = mock(GithubService.class);
-        GithubDb db = mock(GithubDb.class);
+        db = mock(GithubDb.class);
         when(db.repoDao()).thenReturn(dao);
-        repository = new RepoRepository(new InstantAppExecutors(), db, dao, service);
+        InstantAppExecutors appExecutors = new InstantAppExecutors();
+        dbCache = new GithubDbCache(mock(KeyedInvalidationTracker.class));
+        searchIndex = mock(RepoSearchIndex.class);
+        invalidationTracker = mock(KeyedInvalidationTracker.class);
+        cacheEvictor = mock(CacheEvictor.class);
+        repository = new RepoRepository(appExecutors, db, dao, service,
+                new FetchCoordinator(appExecutors), dbCache, new ApiQuota(), RetryPolicy.NONE,
+                searchIndex, cacheEvictor, invalidationTracker);
     }
 
     @Test
     public void loadRepoFromNetwork() throws IOException {
         MutableLiveData<Repo> dbData = new MutableLiveData<>();
-        when(dao.load("foo", "bar")).thenReturn(dbData);
+        whenQueried("repo", "foo/bar", dbData);
 
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
         LiveData<ApiResponse<Repo>> call = successCall(repo);
-        when(service.getRepo("foo", "bar")).thenReturn(call);
+        when(service.getRepo("foo", "bar", Collections.emptyMap())).thenReturn(call);
 
         LiveData<Resource<Repo>> data = repository.loadRepo("foo", "bar");
-        verify(dao).load("foo", "bar");
+        verify(invalidationTracker).createLiveData(aryEq(new String[]{"repo"}), eq("foo/bar"),
+                any(Callable.class));
         verifyNoMoreInteractions(service);
 
         Observer observer = mock(Observer.class);
@@ -96,26 +125,43 @@ public class RepoRepositoryTest {
         verifyNoMoreInteractions(service);
         verify(observer).onChanged(Resource.loading(null));
         MutableLiveData<Repo> updatedDbData = new MutableLiveData<>();
-        when(dao.load("foo", "bar")).thenReturn(updatedDbData);
+        whenQueried("repo", "foo/bar", updatedDbData);
 
         dbData.postValue(null);
-        verify(service).getRepo("foo", "bar");
+        verify(service).getRepo("foo", "bar", Collections.emptyMap());
         verify(dao).insert(repo);
 
         updatedDbData.postValue(repo);
         verify(observer).onChanged(Resource.success(repo));
     }
 
+    @Test
+    public void loadRepoFromCache() {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        MutableLiveData<Repo> dbData = new MutableLiveData<>();
+        whenQueried("repo", "foo/bar", dbData);
+        repository.loadRepo("foo", "bar").observeForever(mock(Observer.class));
+        dbData.setValue(repo);
+        assertThat(dbCache.repos().get("foo/bar"), is(repo));
+
+        // opening the repo again shows the cached one before the database query returns
+        whenQueried("repo", "foo/bar", new MutableLiveData<>());
+        Observer<Resource<Repo>> observer = mock(Observer.class);
+        repository.loadRepo("foo", "bar").observeForever(observer);
+        verify(observer).onChanged(Resource.loading(repo));
+    }
+
     @Test
     public void loadContributors() throws IOException {
         MutableLiveData<List<Contributor>> dbData = new MutableLiveData<>();
-        when(dao.loadContributors("foo", "bar")).thenReturn(dbData);
+        whenQueried("contributor", "foo/bar", dbData);
 
         LiveData<Resource<List<Contributor>>> data = repository.loadContributors("foo",
                 "bar");
-        verify(dao).loadContributors("foo", "bar");
+        verify(invalidationTracker).createLiveData(aryEq(new String[]{"contributor"}),
+                eq("foo/bar"), any(Callable.class));
 
-        verify(service, never()).getContributors(anyString(), anyString());
+        verify(service, never()).getContributors(anyString(), anyString(), anyMap());
 
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
         Contributor contributor = TestUtil.createContributor(repo, "log", 3);
@@ -124,7 +170,7 @@ public class RepoRepositoryTest {
         contributor.setRepoName(null);
         List<Contributor> contributors = Collections.singletonList(contributor);
         LiveData<ApiResponse<List<Contributor>>> call = successCall(contributors);
-        when(service.getContributors("foo", "bar"))
+        when(service.getContributors("foo", "bar", Collections.emptyMap()))
                 .thenReturn(call);
 
         Observer<Resource<List<Contributor>>> observer = mock(Observer.class);
@@ -133,10 +179,10 @@ public class RepoRepositoryTest {
         verify(observer).onChanged(Resource.loading( null));
 
         MutableLiveData<List<Contributor>> updatedDbData = new MutableLiveData<>();
-        when(dao.loadContributors("foo", "bar")).thenReturn(updatedDbData);
+        whenQueried("contributor", "foo/bar", updatedDbData);
         dbData.setValue(Collections.emptyList());
 
-        verify(service).getContributors("foo", "bar");
+        verify(service).getContributors("foo", "bar", Collections.emptyMap());
         ArgumentCaptor<List<Contributor>> inserted = ArgumentCaptor.forClass((Class) List.class);
         verify(dao).insertContributors(inserted.capture());
 
@@ -150,6 +196,72 @@ public class RepoRepositoryTest {
         verify(observer).onChanged(Resource.success(contributors));
     }
 
+    @Test
+    public void loadRepoDetails() {
+        runQueriesWhenCreated();
+        when(dao.findRepoDetails("foo", "bar")).thenReturn(new RepoDetails(null, null));
+        MutableLiveData<ApiResponse<Repo>> repoCall = new MutableLiveData<>();
+        when(service.getRepo("foo", "bar", Collections.emptyMap())).thenReturn(repoCall);
+        MutableLiveData<ApiResponse<List<Contributor>>> contributorsCall =
+                new MutableLiveData<>();
+        when(service.getContributors("foo", "bar", Collections.emptyMap()))
+                .thenReturn(contributorsCall);
+
+        Observer<Resource<RepoDetails>> observer = mock(Observer.class);
+        repository.loadRepoDetails("foo", "bar").observeForever(observer);
+        // both calls run at the same time
+        assertThat(repoCall.hasActiveObservers(), is(true));
+        assertThat(contributorsCall.hasActiveObservers(), is(true));
+
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        Contributor contributor = TestUtil.createContributor(repo, "log", 3);
+        contributor.setRepoOwner(null);
+        contributor.setRepoName(null);
+        List<Contributor> contributors = Collections.singletonList(contributor);
+        repoCall.setValue(new ApiResponse<>(Response.success(repo)));
+        verify(dao, never()).insert(repo);
+
+        when(dao.findRepoDetails("foo", "bar")).thenReturn(new RepoDetails(repo, contributors));
+        contributorsCall.setValue(new ApiResponse<>(Response.success(contributors)));
+        InOrder inOrder = inOrder(db, dao);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(dao).insert(repo);
+        inOrder.verify(dao).insertContributors(contributors);
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        assertThat(contributor.getRepoOwner(), is("foo"));
+        assertThat(contributor.getRepoName(), is("bar"));
+
+        ArgumentCaptor<Resource<RepoDetails>> details = ArgumentCaptor.forClass(Resource.class);
+        verify(observer, atLeastOnce()).onChanged(details.capture());
+        Resource<RepoDetails> last = details.getValue();
+        assertThat(last.status, is(Status.SUCCESS));
+        assertThat(last.data.repo, is(repo));
+        assertThat(last.data.contributors, is(contributors));
+    }
+
+    @Test
+    public void loadRepoDetails_oneCallFails() {
+        runQueriesWhenCreated();
+        when(dao.findRepoDetails("foo", "bar")).thenReturn(new RepoDetails(null, null));
+        when(service.getRepo("foo", "bar", Collections.emptyMap()))
+                .thenReturn(successCall(TestUtil.createRepo("foo", "bar", "desc")));
+        MutableLiveData<ApiResponse<List<Contributor>>> contributorsCall =
+                new MutableLiveData<>();
+        when(service.getContributors("foo", "bar", Collections.emptyMap()))
+                .thenReturn(contributorsCall);
+
+        Observer<Resource<RepoDetails>> observer = mock(Observer.class);
+        repository.loadRepoDetails("foo", "bar").observeForever(observer);
+        contributorsCall.setValue(new ApiResponse<>(new IOException("idk")));
+
+        verify(db, never()).beginTransaction();
+        ArgumentCaptor<Resource<RepoDetails>> details = ArgumentCaptor.forClass(Resource.class);
+        verify(observer, atLeastOnce()).onChanged(details.capture());
+        assertThat(details.getValue().status, is(Status.ERROR));
+        assertThat(details.getValue().message, is("idk"));
+    }
+
     @Test
     public void searchNextPage_null() {
         when(dao.findSearchResult("foo")).thenReturn(null);
@@ -160,8 +272,6 @@ public class RepoRepositoryTest {
 
     @Test
     public void search_fromDb() {
-        List<Integer> ids = Arrays.asList(1, 2);
-
         Observer<Resource<List<Repo>>> observer = mock(Observer.class);
         MutableLiveData<RepoSearchResult> dbSearchResult = new MutableLiveData<>();
         MutableLiveData<List<Repo>> repositories = new MutableLiveData<>();
@@ -174,8 +284,8 @@ public class RepoRepositoryTest {
         verifyNoMoreInteractions(service);
         reset(observer);
 
-        RepoSearchResult dbResult = new RepoSearchResult("foo", ids, 2, null);
-        when(dao.loadOrdered(ids)).thenReturn(repositories);
+        RepoSearchResult dbResult = new RepoSearchResult("foo", 2, 2, null);
+        when(dao.loadSearchResults("foo")).thenReturn(repositories);
 
         dbSearchResult.postValue(dbResult);
 
@@ -187,7 +297,6 @@ public class RepoRepositoryTest {
 
     @Test
     public void search_fromServer() {
-        List<Integer> ids = Arrays.asList(1, 2);
         Repo repo1 = TestUtil.createRepo(1, "owner", "repo 1", "desc 1");
         Repo repo2 = TestUtil.createRepo(2, "owner", "repo 2", "desc 2");
 
@@ -211,17 +320,20 @@ public class RepoRepositoryTest {
         verifyNoMoreInteractions(service);
         reset(observer);
 
-        when(dao.loadOrdered(ids)).thenReturn(repositories);
+        when(dao.loadSearchResults("foo")).thenReturn(repositories);
         dbSearchResult.postValue(null);
-        verify(dao, never()).loadOrdered(anyObject());
+        verify(dao, never()).loadSearchResults(anyString());
 
         verify(service).searchRepos("foo");
         MutableLiveData<RepoSearchResult> updatedResult = new MutableLiveData<>();
         when(dao.search("foo")).thenReturn(updatedResult);
-        updatedResult.postValue(new RepoSearchResult("foo", ids, 2, null));
+        updatedResult.postValue(new RepoSearchResult("foo", 2, 2, null));
 
         callLiveData.postValue(new ApiResponse<>(Response.success(apiResponse)));
         verify(dao).insertRepos(repoList);
+        verify(dao).deleteSearchResultItems("foo");
+        verify(dao).insertSearchResultItems("foo", 0, new int[]{1, 2});
+        verify(cacheEvictor).evictInBackground();
         repositories.postValue(repoList);
         verify(observer).onChanged(Resource.success(repoList));
         verifyNoMoreInteractions(service);
@@ -240,4 +352,58 @@ public class RepoRepositoryTest {
         apiResponse.postValue(new ApiResponse<>(new Exception("idk")));
         verify(observer).onChanged(Resource.error("idk", null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchCached() {
+        when(dao.findLongestPrefixSearchResult("foo bar")).thenReturn(
+                new RepoSearchResult("foo", 3, 3, null));
+        Repo match = TestUtil.createRepo("a", "foo", "a bar");
+        Repo upperCaseMatch = TestUtil.createRepo("b", "Foo", "Bar");
+        Repo other = TestUtil.createRepo("c", "foo", "baz");
+        when(dao.findSearchResults("foo")).thenReturn(Arrays.asList(match, upperCaseMatch, other));
+
+        Observer<List<Repo>> observer = mock(Observer.class);
+        repository.searchCached("foo bar").observeForever(observer);
+        verify(observer).onChanged(Arrays.asList(match, upperCaseMatch));
+    }
+
+    @Test
+    public void filter_qualifiersIgnored() {
+        List<Repo> repos = TestUtil.createRepos(2, "a", "foo", "c");
+        assertThat(RepoRepository.filter(repos, "foo language:java"), is(repos));
+    }
+
+    @Test
+    public void searchCached_fromIndex() {
+        List<Repo> repos = TestUtil.createRepos(2, "a", "foo", "c");
+        when(searchIndex.search(eq("foo"), anyInt())).thenReturn(repos);
+        Observer<List<Repo>> observer = mock(Observer.class);
+        repository.searchCached("foo").observeForever(observer);
+        verify(observer).onChanged(repos);
+        verify(dao, never()).findSearchResults(anyString());
+    }
+
+    @Test
+    public void searchCached_none() {
+        when(searchIndex.search(eq("foo"), anyInt())).thenReturn(Collections.emptyList());
+        Observer<List<Repo>> observer = mock(Observer.class);
+        repository.searchCached("foo").observeForever(observer);
+        verify(observer).onChanged(null);
+    }
+
+    private <T> void whenQueried(String table, String key, LiveData<T> result) {
+        when(invalidationTracker.<T>createLiveData(aryEq(new String[]{table}), eq(key),
+                any(Callable.class))).thenReturn(result);
+    }
+
+    // the database queries run once, when they are created
+    private void runQueriesWhenCreated() {
+        Answer<LiveData<Object>> runQuery = invocation -> {
+            MutableLiveData<Object> data = new MutableLiveData<>();
+            data.setValue(((Callable) invocation.getArgument(2)).call());
+            return data;
+        };
+        when(invalidationTracker.createLiveData(any(String[].class), anyString(),
+                any(Callable.class))).thenAnswer(runQuery);
+    }
+}
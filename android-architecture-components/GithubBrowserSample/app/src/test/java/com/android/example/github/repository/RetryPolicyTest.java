@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.api.ApiResponse;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class RetryPolicyTest {
+    // always picks the longest delay
+    private final RetryPolicy policy = new RetryPolicy(3, 100, 300, new FixedRandom(1));
+
+    @Test
+    public void serverError() {
+        assertThat(policy.retryDelayMillis(1, error(503), 0), is(100L));
+        assertThat(policy.retryDelayMillis(2, error(500), 0), is(200L));
+    }
+
+    @Test
+    public void networkFailure() {
+        ApiResponse<String> response = new ApiResponse<>(new IOException("idk"));
+        assertThat(policy.retryDelayMillis(1, response, 0), is(100L));
+    }
+
+    @Test
+    public void callFailure() {
+        ApiResponse<String> response = new ApiResponse<>(new IllegalStateException("bad json"));
+        assertThat(policy.retryDelayMillis(1, response, 0), is(-1L));
+    }
+
+    @Test
+    public void clientError() {
+        assertThat(policy.retryDelayMillis(1, error(404), 0), is(-1L));
+        assertThat(policy.retryDelayMillis(1, error(422), 0), is(-1L));
+        assertThat(policy.retryDelayMillis(1, error(403), 0), is(-1L));
+    }
+
+    @Test
+    public void maxAttempts() {
+        assertThat(policy.retryDelayMillis(3, error(503), 0), is(-1L));
+    }
+
+    @Test
+    public void maxDelay() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 300, new FixedRandom(1));
+        assertThat(policy.retryDelayMillis(5, error(503), 0), is(300L));
+    }
+
+    @Test
+    public void jitter() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 300, new FixedRandom(0));
+        assertThat(policy.retryDelayMillis(2, error(503), 0), is(100L));
+        policy = new RetryPolicy(3, 100, 300, new FixedRandom(.5));
+        assertThat(policy.retryDelayMillis(2, error(503), 0), is(150L));
+    }
+
+    @Test
+    public void rateLimited() {
+        // the reset header is in seconds
+        assertThat(policy.retryDelayMillis(1, rateLimited(0, 1), 900), is(100L));
+        assertThat(policy.retryDelayMillis(1, rateLimited(0, 1), 1200), is(0L));
+    }
+
+    @Test
+    public void rateLimitResetTooLate() {
+        assertThat(policy.retryDelayMillis(1, rateLimited(0, 10), 0), is(-1L));
+    }
+
+    @Test
+    public void forbiddenWithQuotaLeft() {
+        assertThat(policy.retryDelayMillis(1, rateLimited(10, 1), 900), is(-1L));
+    }
+
+    @Test
+    public void none() {
+        assertThat(RetryPolicy.NONE.retryDelayMillis(1, error(503), 0), is(-1L));
+    }
+
+    private static ApiResponse<String> error(int code) {
+        return new ApiResponse<>(Response.error(code,
+                ResponseBody.create(MediaType.parse("txt"), "error")));
+    }
+
+    private static ApiResponse<String> rateLimited(int remaining, long resetAtSeconds) {
+        okhttp3.Response raw = new okhttp3.Response.Builder()
+                .code(403)
+                .message("Forbidden")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("https://api.github.com/").build())
+                .headers(Headers.of("X-RateLimit-Limit", "60",
+                        "X-RateLimit-Remaining", String.valueOf(remaining),
+                        "X-RateLimit-Reset", String.valueOf(resetAtSeconds)))
+                .build();
+        return new ApiResponse<>(Response.error(
+                ResponseBody.create(MediaType.parse("txt"), "rate limited"), raw));
+    }
+
+    private static class FixedRandom extends Random {
+        private final double value;
+
+        FixedRandom(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+}
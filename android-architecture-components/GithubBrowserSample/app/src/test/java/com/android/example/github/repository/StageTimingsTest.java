@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.repository.StageTimings.ResourceType;
+import com.android.example.github.repository.StageTimings.Stage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class StageTimingsTest {
+    private final StageTimings timings = new StageTimings();
+
+    @Test
+    public void recordElapsed() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20);
+        timings.recordElapsed(ResourceType.USER, Stage.NETWORK, start);
+        assertThat(timings.get(ResourceType.USER, Stage.NETWORK).getCount(), is(1L));
+        assertThat(timings.get(ResourceType.USER, Stage.NETWORK).getMax() >= 20_000, is(true));
+        assertThat(timings.get(ResourceType.REPO, Stage.NETWORK).getCount(), is(0L));
+    }
+
+    @Test
+    public void export() throws IOException {
+        timings.get(ResourceType.SEARCH, Stage.TOTAL).record(10);
+        timings.get(ResourceType.SEARCH, Stage.TOTAL).record(20);
+        StringBuilder csv = new StringBuilder();
+        timings.export(csv);
+        assertThat(csv.toString(), is("resource,stage,count,p50,p95,p99,max\n"
+                + "search,total,2,10,20,20,20\n"));
+    }
+
+    @Test
+    public void reset() {
+        timings.get(ResourceType.CONTRIBUTORS, Stage.RELOAD).record(10);
+        timings.reset();
+        assertThat(timings.get(ResourceType.CONTRIBUTORS, Stage.RELOAD).getCount(), is(0L));
+    }
+}
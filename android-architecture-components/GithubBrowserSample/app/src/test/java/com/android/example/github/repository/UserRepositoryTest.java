@@ -19,10 +19,14 @@ package com.android.example.github.repository;
 import com.android.example.github.AppExecutors;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
+import com.android.example.github.db.FetchedResourceDao;
+import com.android.example.github.db.GithubDbCache;
+import com.android.example.github.db.KeyedInvalidationTracker;
 import com.android.example.github.db.UserDao;
 import com.android.example.github.util.ApiUtil;
 import com.android.example.github.util.InstantAppExecutors;
 import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.FetchedResource;
 import com.android.example.github.vo.Resource;
 import com.android.example.github.vo.User;
 
@@ -37,6 +41,15 @@ import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -45,8 +58,10 @@ import static org.mockito.Mockito.when;
 @RunWith(JUnit4.class)
 public class UserRepositoryTest {
     private UserDao userDao;
+    private FetchedResourceDao fetchedResourceDao;
     private GithubService githubService;
     private UserRepository repo;
+    private KeyedInvalidationTracker invalidationTracker;
 
     @Rule
     public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
@@ -54,31 +69,36 @@ public class UserRepositoryTest {
     @Before
     public void setup() {
         userDao = mock(UserDao.class);
+        fetchedResourceDao = mock(FetchedResourceDao.class);
         githubService = mock(GithubService.class);
-        repo = new UserRepository(new InstantAppExecutors(), userDao, githubService);
+        invalidationTracker = mock(KeyedInvalidationTracker.class);
+        repo = new UserRepository(new FetchCoordinator(new InstantAppExecutors(),
+                fetchedResourceDao), userDao, githubService,
+                new GithubDbCache(mock(KeyedInvalidationTracker.class)), invalidationTracker);
     }
 
     @Test
     public void loadUser() {
         repo.loadUser("abc");
-        verify(userDao).findByLogin("abc");
+        verify(invalidationTracker).createLiveData(aryEq(new String[]{"user"}), eq("abc"),
+                any(Callable.class));
     }
 
     @Test
     public void goToNetwork() {
         MutableLiveData<User> dbData = new MutableLiveData<>();
-        when(userDao.findByLogin("foo")).thenReturn(dbData);
+        whenQueried("foo", dbData);
         User user = TestUtil.createUser("foo");
         LiveData<ApiResponse<User>> call = ApiUtil.successCall(user);
-        when(githubService.getUser("foo")).thenReturn(call);
+        when(githubService.getUser("foo", Collections.emptyMap())).thenReturn(call);
         Observer<Resource<User>> observer = mock(Observer.class);
 
         repo.loadUser("foo").observeForever(observer);
-        verify(githubService, never()).getUser("foo");
+        verify(githubService, never()).getUser("foo", Collections.emptyMap());
         MutableLiveData<User> updatedDbData = new MutableLiveData<>();
-        when(userDao.findByLogin("foo")).thenReturn(updatedDbData);
+        whenQueried("foo", updatedDbData);
         dbData.setValue(null);
-        verify(githubService).getUser("foo");
+        verify(githubService).getUser("foo", Collections.emptyMap());
     }
 
     @Test
@@ -86,10 +106,80 @@ public class UserRepositoryTest {
         MutableLiveData<User> dbData = new MutableLiveData<>();
         User user = TestUtil.createUser("foo");
         dbData.setValue(user);
-        when(userDao.findByLogin("foo")).thenReturn(dbData);
+        whenQueried("foo", dbData);
+        fetchedAgo("foo", 10, TimeUnit.MINUTES);
+        Observer<Resource<User>> observer = mock(Observer.class);
+        repo.loadUser("foo").observeForever(observer);
+        verify(githubService, never()).getUser("foo", Collections.emptyMap());
+        verify(observer).onChanged(Resource.success(user));
+    }
+
+    @Test
+    public void revalidateStaleUser() {
+        MutableLiveData<User> dbData = new MutableLiveData<>();
+        User user = TestUtil.createUser("foo");
+        dbData.setValue(user);
+        whenQueried("foo", dbData);
+        fetchedAgo("foo", 2, TimeUnit.HOURS);
+        User updated = new User("foo", null, "new name", null, null, null);
+        when(githubService.getUser("foo", Collections.emptyMap()))
+                .thenReturn(ApiUtil.successCall(updated));
+        Observer<Resource<User>> observer = mock(Observer.class);
+
+        repo.loadUser("foo").observeForever(observer);
+        verify(githubService).getUser("foo", Collections.emptyMap());
+        verify(userDao).insert(updated);
+        verify(fetchedResourceDao).insert(any(FetchedResource.class));
+        verify(observer).onChanged(Resource.success(user));
+        verify(observer, never()).onChanged(Resource.loading(user));
+    }
+
+    @Test
+    public void refetchExpiredUser() {
+        MutableLiveData<User> dbData = new MutableLiveData<>();
+        User user = TestUtil.createUser("foo");
+        dbData.setValue(user);
+        whenQueried("foo", dbData);
+        fetchedAgo("foo", 2, TimeUnit.DAYS);
+        when(githubService.getUser("foo", Collections.emptyMap())).thenReturn(new MutableLiveData<>());
+        Observer<Resource<User>> observer = mock(Observer.class);
+
+        repo.loadUser("foo").observeForever(observer);
+        verify(githubService).getUser("foo", Collections.emptyMap());
+        verify(observer).onChanged(Resource.loading(user));
+    }
+
+    @Test
+    public void revalidateNotModified() {
+        MutableLiveData<User> dbData = new MutableLiveData<>();
+        User user = TestUtil.createUser("foo");
+        dbData.setValue(user);
+        whenQueried("foo", dbData);
+        fetchedAgo("foo", 2, TimeUnit.HOURS, "\"abc\"");
+        Map<String, String> headers = Collections.singletonMap("If-None-Match", "\"abc\"");
+        when(githubService.getUser("foo", headers)).thenReturn(ApiUtil.notModifiedCall());
         Observer<Resource<User>> observer = mock(Observer.class);
+
         repo.loadUser("foo").observeForever(observer);
-        verify(githubService, never()).getUser("foo");
+        verify(githubService).getUser("foo", headers);
+        verify(userDao, never()).insert(any(User.class));
+        verify(fetchedResourceDao).updateFetchedAt(eq("users/foo"), anyLong());
         verify(observer).onChanged(Resource.success(user));
+        verify(observer, never()).onChanged(Resource.loading(user));
+    }
+
+    private void fetchedAgo(String login, long duration, TimeUnit timeUnit) {
+        fetchedAgo(login, duration, timeUnit, null);
+    }
+
+    private void fetchedAgo(String login, long duration, TimeUnit timeUnit, String etag) {
+        when(fetchedResourceDao.find("users/" + login)).thenReturn(new FetchedResource(
+                "users/" + login, System.currentTimeMillis() - timeUnit.toMillis(duration),
+                etag, null));
+    }
+
+    private void whenQueried(String login, LiveData<User> result) {
+        when(invalidationTracker.<User>createLiveData(aryEq(new String[]{"user"}), eq(login),
+                any(Callable.class))).thenReturn(result);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import com.android.example.github.AppExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import android.databinding.ViewDataBinding;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class DataBoundListAdapterTest {
+    private TaskQueue computation;
+
+    private TaskQueue mainThread;
+
+    private StringAdapter adapter;
+
+    @Before
+    public void init() {
+        computation = new TaskQueue();
+        mainThread = new TaskQueue();
+        adapter = new StringAdapter(new AppExecutors(Runnable::run, Runnable::run, computation,
+                mainThread));
+        adapter.replace(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void diffOnComputationExecutor() {
+        adapter.replace(Arrays.asList("a", "b", "c"));
+        assertThat(adapter.getItemCount(), is(2));
+        computation.runAll();
+        assertThat(adapter.getItemCount(), is(2));
+        mainThread.runAll();
+        assertThat(adapter.getItemCount(), is(3));
+        assertThat(adapter.getDiffStats().getDispatchedCount(), is(1));
+        assertThat(adapter.getDiffStats().getCancelledCount(), is(0));
+    }
+
+    @Test
+    public void staleDiffIsCancelledBeforeItStarts() {
+        adapter.replace(Arrays.asList("a", "b", "c"));
+        adapter.replace(Arrays.asList("a"));
+        computation.runAll();
+        mainThread.runAll();
+        assertThat(adapter.getItemCount(), is(1));
+        assertThat(adapter.getDiffStats().getDispatchedCount(), is(1));
+        assertThat(adapter.getDiffStats().getCancelledCount(), is(1));
+    }
+
+    @Test
+    public void runningDiffIsCancelled() {
+        adapter.onCompare = () -> adapter.replace(Arrays.asList("d"));
+        adapter.replace(Arrays.asList("a", "b", "c"));
+        computation.runNext();
+        // the first comparison triggered a newer list, the diff stopped right after it
+        assertThat(adapter.comparisons, is(1));
+        assertThat(adapter.getDiffStats().getCancelledCount(), is(1));
+        assertThat(mainThread.isEmpty(), is(true));
+
+        adapter.onCompare = null;
+        computation.runAll();
+        mainThread.runAll();
+        assertThat(adapter.getItemCount(), is(1));
+        assertThat(adapter.getDiffStats().getDispatchedCount(), is(1));
+    }
+
+    @Test
+    public void staleResultIsNotDispatched() {
+        adapter.replace(Arrays.asList("a", "b", "c"));
+        computation.runAll();
+        adapter.replace(null);
+        mainThread.runAll();
+        assertThat(adapter.getItemCount(), is(0));
+        assertThat(adapter.getDiffStats().getDispatchedCount(), is(0));
+        assertThat(adapter.getDiffStats().getCancelledCount(), is(1));
+    }
+
+    private static class TaskQueue implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.remove().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+
+        boolean isEmpty() {
+            return tasks.isEmpty();
+        }
+    }
+
+    private static class StringAdapter extends DataBoundListAdapter<String, ViewDataBinding> {
+        int comparisons;
+        Runnable onCompare;
+
+        StringAdapter(AppExecutors appExecutors) {
+            super(appExecutors, new DiffStats());
+        }
+
+        @Override
+        protected ViewDataBinding createBinding(ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void bind(ViewDataBinding binding, String item) {
+        }
+
+        @Override
+        protected boolean areItemsTheSame(String oldItem, String newItem) {
+            comparisons++;
+            if (onCompare != null) {
+                onCompare.run();
+            }
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        protected boolean areContentsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+    }
+}
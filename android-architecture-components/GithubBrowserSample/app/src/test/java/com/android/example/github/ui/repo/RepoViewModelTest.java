@@ -17,11 +17,14 @@
 package com.android.example.github.ui.repo;
 
 import com.android.example.github.repository.RepoRepository;
+import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoDetails;
 import com.android.example.github.vo.Resource;
 
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
 
 import org.junit.Before;
@@ -44,6 +47,7 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(JUnit4.class)
 public class RepoViewModelTest {
@@ -65,13 +69,13 @@ public class RepoViewModelTest {
     public void testNull() {
         assertThat(repoViewModel.getRepo(), notNullValue());
         assertThat(repoViewModel.getContributors(), notNullValue());
-        verify(repository, never()).loadRepo(anyString(), anyString());
+        verify(repository, never()).loadRepoDetails(anyString(), anyString());
     }
 
     @Test
     public void dontFetchWithoutObservers() {
         repoViewModel.setId("a", "b");
-        verify(repository, never()).loadRepo(anyString(), anyString());
+        verify(repository, never()).loadRepoDetails(anyString(), anyString());
     }
 
     @Test
@@ -81,7 +85,7 @@ public class RepoViewModelTest {
 
         repoViewModel.setId("a", "b");
         repoViewModel.getRepo().observeForever(mock(Observer.class));
-        verify(repository, times(1)).loadRepo(owner.capture(),
+        verify(repository, times(1)).loadRepoDetails(owner.capture(),
                 name.capture());
         assertThat(owner.getValue(), is("a"));
         assertThat(name.getValue(), is("b"));
@@ -96,7 +100,7 @@ public class RepoViewModelTest {
         repoViewModel.setId("a", "b");
         repoViewModel.setId("c", "d");
 
-        verify(repository, times(2)).loadRepo(owner.capture(),
+        verify(repository, times(2)).loadRepoDetails(owner.capture(),
                 name.capture());
         assertThat(owner.getAllValues(), is(Arrays.asList("a", "c")));
         assertThat(name.getAllValues(), is(Arrays.asList("b", "d")));
@@ -109,7 +113,29 @@ public class RepoViewModelTest {
         verifyNoMoreInteractions(observer);
         verifyNoMoreInteractions(repository);
         repoViewModel.setId("foo", "bar");
-        verify(repository).loadContributors("foo", "bar");
+        verify(repository).loadRepoDetails("foo", "bar");
+    }
+
+    @Test
+    public void repoAndContributorsFromOneLoad() {
+        MutableLiveData<Resource<RepoDetails>> details = new MutableLiveData<>();
+        when(repository.loadRepoDetails("foo", "bar")).thenReturn(details);
+        Observer<Resource<Repo>> repoObserver = mock(Observer.class);
+        Observer<Resource<List<Contributor>>> contributorsObserver = mock(Observer.class);
+        repoViewModel.getRepo().observeForever(repoObserver);
+        repoViewModel.getContributors().observeForever(contributorsObserver);
+        repoViewModel.setId("foo", "bar");
+        verify(repository, times(1)).loadRepoDetails("foo", "bar");
+
+        details.setValue(Resource.loading(null));
+        verify(repoObserver).onChanged(Resource.loading(null));
+        verify(contributorsObserver).onChanged(Resource.loading(null));
+
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        List<Contributor> contributors = Arrays.asList(TestUtil.createContributor(repo, "a", 1));
+        details.setValue(Resource.success(new RepoDetails(repo, contributors)));
+        verify(repoObserver).onChanged(Resource.success(repo));
+        verify(contributorsObserver).onChanged(Resource.success(contributors));
     }
 
     @Test
@@ -134,10 +160,10 @@ public class RepoViewModelTest {
         verifyNoMoreInteractions(repository);
         Observer<Resource<Repo>> observer = mock(Observer.class);
         repoViewModel.getRepo().observeForever(observer);
-        verify(repository).loadRepo("foo", "bar");
+        verify(repository).loadRepoDetails("foo", "bar");
         reset(repository);
         repoViewModel.retry();
-        verify(repository).loadRepo("foo", "bar");
+        verify(repository).loadRepoDetails("foo", "bar");
     }
 
     @Test
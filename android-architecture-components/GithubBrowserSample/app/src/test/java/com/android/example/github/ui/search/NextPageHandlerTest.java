@@ -16,6 +16,7 @@
 
 package com.android.example.github.ui.search;
 
+import com.android.example.github.PriorityExecutor.Priority;
 import com.android.example.github.repository.RepoRepository;
 import com.android.example.github.vo.Resource;
 
@@ -30,6 +31,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -63,7 +66,7 @@ public class NextPageHandlerTest {
     public void reloadSameValue() {
         enqueueResponse("foo");
         pageHandler.queryNextPage("foo");
-        verify(repository).searchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
 
         reset(repository);
         pageHandler.queryNextPage("foo");
@@ -75,7 +78,7 @@ public class NextPageHandlerTest {
         MutableLiveData<Resource<Boolean>> liveData = enqueueResponse("foo");
 
         pageHandler.queryNextPage("foo");
-        verify(repository).searchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
         assertThat(liveData.hasActiveObservers(), is(true));
         pageHandler.onChanged(Resource.loading(null));
         assertThat(liveData.hasActiveObservers(), is(true));
@@ -91,7 +94,7 @@ public class NextPageHandlerTest {
         reset(repository);
         MutableLiveData<Resource<Boolean>> nextPage = enqueueResponse("foo");
         pageHandler.queryNextPage("foo");
-        verify(repository).searchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
         assertThat(nextPage.hasActiveObservers(), is(true));
 
         pageHandler.onChanged(Resource.success(false));
@@ -110,7 +113,7 @@ public class NextPageHandlerTest {
         // query another
         MutableLiveData<Resource<Boolean>> bar = enqueueResponse("bar");
         pageHandler.queryNextPage("bar");
-        verify(repository).searchNextPage("bar");
+        verify(repository).searchNextPage("bar", Priority.USER_VISIBLE);
         assertThat(bar.hasActiveObservers(), is(true));
     }
 
@@ -147,13 +150,72 @@ public class NextPageHandlerTest {
         assertThat(liveData.hasActiveObservers(), is(false));
     }
 
+    @Test
+    public void prefetch() {
+        MutableLiveData<Resource<Boolean>> liveData = enqueueResponse("foo");
+        pageHandler.prefetchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.PREFETCH);
+        assertThat(liveData.hasActiveObservers(), is(true));
+        assertThat(getStatus().isRunning(), is(false));
+
+        // already running
+        pageHandler.prefetchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.PREFETCH);
+
+        pageHandler.onChanged(Resource.success(true));
+        assertThat(pageHandler.prefetching, is(false));
+        assertThat(getStatus().isRunning(), is(false));
+        assertThat(liveData.hasActiveObservers(), is(false));
+    }
+
+    @Test
+    public void reachEndWhilePrefetching() {
+        MutableLiveData<Resource<Boolean>> liveData = enqueueResponse("foo");
+        pageHandler.prefetchNextPage("foo");
+        pageHandler.queryNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.PREFETCH);
+        assertThat(pageHandler.prefetching, is(false));
+        assertThat(getStatus().isRunning(), is(true));
+
+        pageHandler.onChanged(Resource.error("idk", true));
+        assertThat(getStatus().getErrorMessage(), is("idk"));
+        assertThat(liveData.hasActiveObservers(), is(false));
+    }
+
+    @Test
+    public void prefetchFailure() {
+        enqueueResponse("foo");
+        pageHandler.prefetchNextPage("foo");
+        pageHandler.onChanged(Resource.error("idk", true));
+        assertThat(getStatus().isRunning(), is(false));
+        assertThat(getStatus().getErrorMessage(), nullValue());
+        assertThat(pageHandler.hasMore, is(true));
+
+        // retried once the user reaches the end
+        reset(repository);
+        enqueueResponse("foo");
+        pageHandler.queryNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
+        assertThat(getStatus().isRunning(), is(true));
+    }
+
+    @Test
+    public void noPrefetchWithoutNextPage() {
+        enqueueResponse("foo");
+        pageHandler.queryNextPage("foo");
+        pageHandler.onChanged(Resource.success(false));
+        reset(repository);
+        pageHandler.prefetchNextPage("foo");
+        verifyNoMoreInteractions(repository);
+    }
+
     private SearchViewModel.LoadMoreState getStatus() {
         return pageHandler.getLoadMoreState().getValue();
     }
 
     private MutableLiveData<Resource<Boolean>> enqueueResponse(String query) {
         MutableLiveData<Resource<Boolean>> liveData = new MutableLiveData<>();
-        when(repository.searchNextPage(query)).thenReturn(liveData);
+        when(repository.searchNextPage(eq(query), any(Priority.class))).thenReturn(liveData);
         return liveData;
     }
 }
\ No newline at end of file
@@ -17,7 +17,10 @@
 package com.android.example.github.ui.search;
 
 
+import com.android.example.github.PriorityExecutor.Priority;
 import com.android.example.github.repository.RepoRepository;
+import com.android.example.github.util.InstantAppExecutors;
+import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.Resource;
 
@@ -32,10 +35,16 @@ import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -49,10 +58,17 @@ public class SearchViewModelTest {
     public InstantTaskExecutorRule instantExecutor = new InstantTaskExecutorRule();
     private SearchViewModel viewModel;
     private RepoRepository repository;
+    // live queries wait until the test runs them
+    private final List<Runnable> scheduled = new ArrayList<>();
     @Before
     public void init() {
         repository = mock(RepoRepository.class);
-        viewModel = new SearchViewModel(repository);
+        viewModel = new SearchViewModel(repository, new InstantAppExecutors() {
+            @Override
+            public void schedule(Executor executor, Runnable command, long delayMillis) {
+                scheduled.add(() -> executor.execute(command));
+            }
+        });
     }
 
     @Test
@@ -69,24 +85,25 @@ public class SearchViewModelTest {
         viewModel.getResults().observeForever(result);
         viewModel.setQuery("foo");
         verify(repository).search("foo");
-        verify(repository, never()).searchNextPage("foo");
+        verify(repository, never()).searchNextPage(eq("foo"), any(Priority.class));
     }
 
     @Test
     public void noObserverNoQuery() {
-        when(repository.searchNextPage("foo")).thenReturn(mock(LiveData.class));
+        when(repository.searchNextPage(eq("foo"), any(Priority.class)))
+                .thenReturn(mock(LiveData.class));
         viewModel.setQuery("foo");
         verify(repository, never()).search("foo");
         // next page is user interaction and even if loading state is not observed, we query
         // would be better to avoid that if main search query is not observed
         viewModel.loadNextPage();
-        verify(repository).searchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
     }
 
     @Test
     public void swap() {
         LiveData<Resource<Boolean>> nextPage = new MutableLiveData<>();
-        when(repository.searchNextPage("foo")).thenReturn(nextPage);
+        when(repository.searchNextPage(eq("foo"), any(Priority.class))).thenReturn(nextPage);
 
         Observer<Resource<List<Repo>>> result = mock(Observer.class);
         viewModel.getResults().observeForever(result);
@@ -96,12 +113,58 @@ public class SearchViewModelTest {
         viewModel.loadNextPage();
 
         viewModel.getLoadMoreStatus().observeForever(mock(Observer.class));
-        verify(repository).searchNextPage("foo");
+        verify(repository).searchNextPage("foo", Priority.USER_VISIBLE);
         assertThat(nextPage.hasActiveObservers(), is(true));
         viewModel.setQuery("bar");
         assertThat(nextPage.hasActiveObservers(), is(false));
         verify(repository).search("bar");
-        verify(repository, never()).searchNextPage("bar");
+        verify(repository, never()).searchNextPage(eq("bar"), any(Priority.class));
+    }
+
+    @Test
+    public void pagedResults() {
+        viewModel.setPrefetchDistance(5);
+        viewModel.setQuery("foo");
+        verify(repository, never()).searchPaged(anyString(), anyInt(), any());
+        viewModel.getPagedResults().observeForever(mock(Observer.class));
+        verify(repository).searchPaged(eq("foo"), eq(5), eq(viewModel.boundaryCallback));
+    }
+
+    @Test
+    public void prefetchAtEndOfLoadedRows() {
+        MutableLiveData<Resource<Boolean>> nextPage = new MutableLiveData<>();
+        when(repository.searchNextPage(eq("foo"), any(Priority.class))).thenReturn(nextPage);
+        viewModel.setQuery("foo");
+        viewModel.getLoadMoreStatus().observeForever(mock(Observer.class));
+
+        viewModel.onScrolled(10, 30);
+        verify(repository, never()).searchNextPage(eq("foo"), any(Priority.class));
+        viewModel.boundaryCallback.onItemAtEndLoaded(TestUtil.createRepo("a", "b", "c"));
+        verify(repository).searchNextPage("foo", Priority.PREFETCH);
+        assertThat(viewModel.getLoadMoreStatus().getValue().isRunning(), is(false));
+
+        viewModel.onScrolled(29, 30);
+        verify(repository).searchNextPage("foo", Priority.PREFETCH);
+        assertThat(viewModel.getLoadMoreStatus().getValue().isRunning(), is(true));
+    }
+
+    @Test
+    public void prefetchCancelledOnNewQuery() {
+        MutableLiveData<Resource<Boolean>> nextPage = new MutableLiveData<>();
+        when(repository.searchNextPage(eq("foo"), any(Priority.class))).thenReturn(nextPage);
+        viewModel.setQuery("foo");
+        viewModel.boundaryCallback.onItemAtEndLoaded(TestUtil.createRepo("a", "b", "c"));
+        assertThat(nextPage.hasActiveObservers(), is(true));
+        viewModel.setQuery("bar");
+        assertThat(nextPage.hasActiveObservers(), is(false));
+    }
+
+    @Test
+    public void prefetchDisabled() {
+        viewModel.setPrefetchDistance(0);
+        viewModel.setQuery("foo");
+        viewModel.boundaryCallback.onItemAtEndLoaded(TestUtil.createRepo("a", "b", "c"));
+        verify(repository, never()).searchNextPage(eq("foo"), any(Priority.class));
     }
 
     @Test
@@ -118,6 +181,71 @@ public class SearchViewModelTest {
         verify(repository).search("foo");
     }
 
+    @Test
+    public void liveQueryIsDebounced() {
+        viewModel.getResults().observeForever(mock(Observer.class));
+        viewModel.setLiveQuery("f");
+        viewModel.setLiveQuery("fo");
+        viewModel.setLiveQuery("foo");
+        verify(repository).searchCached("foo");
+        verify(repository, never()).search(anyString());
+
+        runScheduled();
+        verify(repository).search("foo");
+        verify(repository, never()).search("f");
+        verify(repository, never()).search("fo");
+    }
+
+    @Test
+    public void submittedQueryReplacesLiveQuery() {
+        viewModel.getResults().observeForever(mock(Observer.class));
+        viewModel.setLiveQuery("fo");
+        viewModel.setQuery("foo");
+        verify(repository).search("foo");
+
+        runScheduled();
+        verify(repository, never()).search("fo");
+    }
+
+    @Test
+    public void cachedPrefixShownWhileLoading() {
+        MutableLiveData<List<Repo>> cached = new MutableLiveData<>();
+        when(repository.searchCached("foo")).thenReturn(cached);
+        MutableLiveData<Resource<List<Repo>>> search = new MutableLiveData<>();
+        when(repository.search("foo")).thenReturn(search);
+        Observer<Resource<List<Repo>>> observer = mock(Observer.class);
+        viewModel.getResults().observeForever(observer);
+
+        viewModel.setLiveQuery("foo");
+        List<Repo> cachedRepos = TestUtil.createRepos(2, "a", "foo", "c");
+        cached.setValue(cachedRepos);
+        verify(observer).onChanged(Resource.loading(cachedRepos));
+
+        runScheduled();
+        search.setValue(Resource.loading(null));
+        verify(observer, never()).onChanged(Resource.loading(null));
+
+        List<Repo> repos = TestUtil.createRepos(3, "a", "foo", "c");
+        search.setValue(Resource.success(repos));
+        verify(observer).onChanged(Resource.success(repos));
+    }
+
+    @Test
+    public void cachedShownWhenSearchFails() {
+        MutableLiveData<List<Repo>> cached = new MutableLiveData<>();
+        when(repository.searchCached("foo")).thenReturn(cached);
+        MutableLiveData<Resource<List<Repo>>> search = new MutableLiveData<>();
+        when(repository.search("foo")).thenReturn(search);
+        Observer<Resource<List<Repo>>> observer = mock(Observer.class);
+        viewModel.getResults().observeForever(observer);
+
+        viewModel.setQuery("foo");
+        List<Repo> cachedRepos = TestUtil.createRepos(2, "a", "foo", "c");
+        cached.setValue(cachedRepos);
+        search.setValue(Resource.error("offline", null));
+        verify(observer).onChanged(Resource.error("offline", cachedRepos));
+    }
+
     @Test
     public void resetSameQuery() {
         viewModel.getResults().observeForever(mock(Observer.class));
@@ -129,4 +257,12 @@ public class SearchViewModelTest {
         viewModel.setQuery("bar");
         verify(repository).search("bar");
     }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
 }
\ No newline at end of file
@@ -19,7 +19,6 @@ package com.android.example.github.ui.user;
 import com.android.example.github.repository.RepoRepository;
 import com.android.example.github.repository.UserRepository;
 import com.android.example.github.util.TestUtil;
-import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.Resource;
 import com.android.example.github.vo.User;
 
@@ -34,8 +33,6 @@ import android.arch.core.executor.testing.InstantTaskExecutorRule;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
 
-import java.util.List;
-
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -111,13 +108,23 @@ public class UserViewModelTest {
 
     @Test
     public void loadRepositories() {
-        userViewModel.getRepositories().observeForever(mock(Observer.class));
+        userViewModel.getRepositoriesRefresh().observeForever(mock(Observer.class));
         verifyNoMoreInteractions(repoRepository);
         userViewModel.setLogin("foo");
-        verify(repoRepository).loadRepos("foo");
+        verify(repoRepository).refreshRepos("foo");
         reset(repoRepository);
         userViewModel.setLogin("bar");
-        verify(repoRepository).loadRepos("bar");
+        verify(repoRepository).refreshRepos("bar");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    public void loadPagedRepositories() {
+        userViewModel.getPagedRepositories().observeForever(mock(Observer.class));
+        verifyNoMoreInteractions(repoRepository);
+        userViewModel.setLogin("foo");
+        verify(repoRepository).loadReposPaged("foo");
+        verify(repoRepository, never()).refreshRepos(anyString());
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -130,18 +137,18 @@ public class UserViewModelTest {
         Observer userObserver = mock(Observer.class);
         userViewModel.getUser().observeForever(userObserver);
         Observer repoObserver = mock(Observer.class);
-        userViewModel.getRepositories().observeForever(repoObserver);
+        userViewModel.getRepositoriesRefresh().observeForever(repoObserver);
 
         verify(userRepository).loadUser("foo");
-        verify(repoRepository).loadRepos("foo");
+        verify(repoRepository).refreshRepos("foo");
         reset(userRepository, repoRepository);
 
         userViewModel.retry();
         verify(userRepository).loadUser("foo");
-        verify(repoRepository).loadRepos("foo");
+        verify(repoRepository).refreshRepos("foo");
         reset(userRepository, repoRepository);
         userViewModel.getUser().removeObserver(userObserver);
-        userViewModel.getRepositories().removeObserver(repoObserver);
+        userViewModel.getRepositoriesRefresh().removeObserver(repoObserver);
 
         userViewModel.retry();
         verifyNoMoreInteractions(userRepository, repoRepository);
@@ -158,10 +165,10 @@ public class UserViewModelTest {
 
     @Test
     public void nullRepoList() {
-        Observer<Resource<List<Repo>>> observer = mock(Observer.class);
+        Observer<Resource<Integer>> observer = mock(Observer.class);
         userViewModel.setLogin("foo");
         userViewModel.setLogin(null);
-        userViewModel.getRepositories().observeForever(observer);
+        userViewModel.getRepositoriesRefresh().observeForever(observer);
         verify(observer).onChanged(null);
     }
 
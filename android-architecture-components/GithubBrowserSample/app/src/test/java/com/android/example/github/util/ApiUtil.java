@@ -23,6 +23,9 @@ import android.arch.lifecycle.MutableLiveData;
 
 import java.io.IOException;
 
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -36,6 +39,16 @@ public class ApiUtil {
     public static <T> LiveData<ApiResponse<T>> successCall(T data) {
         return createCall(Response.success(data));
     }
+    public static <T> LiveData<ApiResponse<T>> notModifiedCall() {
+        return createCall(Response.error(ResponseBody.create(null, ""),
+                new okhttp3.Response.Builder()
+                        .code(304)
+                        .message("Not Modified")
+                        .protocol(Protocol.HTTP_1_1)
+                        .request(new Request.Builder().url("http://localhost/").build())
+                        .build()));
+    }
+
     public static <T> LiveData<ApiResponse<T>> createCall(Response<T> response) {
         MutableLiveData<ApiResponse<T>> data = new MutableLiveData<>();
         data.setValue(new ApiResponse<>(response));
@@ -48,6 +48,7 @@ public class CountingAppExecutors {
             }
         };
         appExecutors = new AppExecutors(
+                new CountingExecutor(increment, decrement),
                 new CountingExecutor(increment, decrement),
                 new CountingExecutor(increment, decrement),
                 new CountingExecutor(increment, decrement));
@@ -24,6 +24,6 @@ public class InstantAppExecutors extends AppExecutors {
     private static Executor instant = command -> command.run();
 
     public InstantAppExecutors() {
-        super(instant, instant, instant);
+        super(instant, instant, instant, instant);
     }
 }
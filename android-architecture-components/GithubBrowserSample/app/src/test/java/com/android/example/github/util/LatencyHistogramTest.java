@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void empty() {
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getValueAtPercentile(50), is(10L));
+        assertThat(histogram.getValueAtPercentile(95), is(19L));
+        assertThat(histogram.getValueAtPercentile(100), is(20L));
+        assertThat(histogram.getMean(), is(10L));
+    }
+
+    @Test
+    public void percentilesWithinBucketError() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertWithinError(histogram.getValueAtPercentile(50), 500_000);
+        assertWithinError(histogram.getValueAtPercentile(95), 950_000);
+        assertWithinError(histogram.getValueAtPercentile(99), 990_000);
+        assertThat(histogram.getMax(), is(1_000_000L));
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long value = 0; value < 1_000_000; value += value < 1000 ? 1 : 997) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueInBucket(index);
+            assertThat(highest >= value, is(true));
+            assertThat(index == 0 || LatencyHistogram.highestValueInBucket(index - 1) < value,
+                    is(true));
+        }
+    }
+
+    @Test
+    public void outOfRange() {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+        assertThat(histogram.getMax(), is(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    public void reset() {
+        histogram.record(42);
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+    }
+
+    private static void assertWithinError(long actual, long expected) {
+        assertThat(actual >= expected && actual <= expected * 1.0625, is(true));
+    }
+}
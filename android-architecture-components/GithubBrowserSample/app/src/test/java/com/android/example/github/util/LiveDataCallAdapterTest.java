@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import com.android.example.github.api.ApiResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+@RunWith(JUnit4.class)
+public class LiveDataCallAdapterTest {
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    // runs the scheduled cancellations when the test asks for it
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private Call<String> call;
+
+    private Call<String> clone;
+
+    private LiveData<ApiResponse<String>> liveData;
+
+    @Before
+    public void init() {
+        InstantAppExecutors appExecutors = new InstantAppExecutors() {
+            @Override
+            public void schedule(Executor executor, Runnable command, long delayMillis) {
+                scheduled.add(() -> executor.execute(command));
+            }
+        };
+        call = mock(Call.class);
+        clone = mock(Call.class);
+        when(call.clone()).thenReturn(clone);
+        LiveDataCallAdapter<String> adapter = new LiveDataCallAdapter<>(String.class,
+                appExecutors, 1000);
+        liveData = adapter.adapt(call);
+    }
+
+    @Test
+    public void enqueuedWhenActive() {
+        verify(call, never()).enqueue(any(Callback.class));
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        ArgumentCaptor<Callback<String>> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call).enqueue(callback.capture());
+
+        callback.getValue().onResponse(call, Response.success("foo"));
+        assertThat(liveData.getValue().body, is("foo"));
+    }
+
+    @Test
+    public void cancelledWhenInactive() {
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        liveData.removeObserver(observer);
+        verify(call, never()).cancel();
+
+        runScheduled();
+        verify(call).cancel();
+    }
+
+    @Test
+    public void notCancelledWhenActiveAgain() {
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        liveData.removeObserver(observer);
+        liveData.observeForever(observer);
+
+        runScheduled();
+        verify(call, never()).cancel();
+        verify(call).enqueue(any(Callback.class));
+    }
+
+    @Test
+    public void notCancelledAfterResponse() {
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        ArgumentCaptor<Callback<String>> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call).enqueue(callback.capture());
+        callback.getValue().onResponse(call, Response.success("foo"));
+        liveData.removeObserver(observer);
+
+        runScheduled();
+        verify(call, never()).cancel();
+    }
+
+    @Test
+    public void cancelledCallIsNotDispatched() {
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        ArgumentCaptor<Callback<String>> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call).enqueue(callback.capture());
+        liveData.removeObserver(observer);
+        runScheduled();
+
+        when(call.isCanceled()).thenReturn(true);
+        callback.getValue().onFailure(call, new IOException("Canceled"));
+        liveData.observeForever(observer);
+        verify(observer, never()).onChanged(any());
+    }
+
+    @Test
+    public void sentAgainAfterCancel() {
+        Observer<ApiResponse<String>> observer = mock(Observer.class);
+        liveData.observeForever(observer);
+        liveData.removeObserver(observer);
+        runScheduled();
+
+        liveData.observeForever(observer);
+        ArgumentCaptor<Callback<String>> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(clone).enqueue(callback.capture());
+        callback.getValue().onResponse(clone, Response.success("bar"));
+        assertThat(liveData.getValue().body, is("bar"));
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
@@ -16,23 +16,29 @@
 
 package com.example.android.persistence.migrations;
 
+import com.example.android.persistence.migrations.PriorityExecutor.Priority;
+
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Global executor pools for the whole application.
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
  * webservice requests).
+ * <p>
+ * Disk and network pools run tasks by {@link Priority} and have bounded queues, see
+ * {@link PriorityExecutor}. Tests can pass any executor instead.
  */
 public class AppExecutors {
 
     private static final int THREAD_COUNT = 3;
 
+    private static final int QUEUE_CAPACITY = 64;
+
     private final Executor diskIO;
 
     private final Executor networkIO;
@@ -45,11 +51,16 @@ public class AppExecutors {
         this.mainThread = mainThread;
     }
 
-    public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(THREAD_COUNT),
+    public AppExecutors(int diskIOThreads, int networkIOThreads, int queueCapacity) {
+        this(new PriorityExecutor("disk-io", diskIOThreads, queueCapacity),
+                new PriorityExecutor("network-io", networkIOThreads, queueCapacity),
                 new MainThreadExecutor());
     }
 
+    public AppExecutors() {
+        this(1, THREAD_COUNT, QUEUE_CAPACITY);
+    }
+
     public Executor diskIO() {
         return diskIO;
     }
@@ -62,6 +73,32 @@ public class AppExecutors {
         return mainThread;
     }
 
+    /**
+     * Tasks that are not {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor diskIO(Priority priority) {
+        return withPriority(diskIO, priority);
+    }
+
+    /**
+     * Tasks that are not {@link Priority#USER_VISIBLE} may be rejected when the queue is full.
+     */
+    public Executor networkIO(Priority priority) {
+        return withPriority(networkIO, priority);
+    }
+
+    @Override
+    public String toString() {
+        return "AppExecutors{diskIO=" + diskIO + ", networkIO=" + networkIO + '}';
+    }
+
+    private static Executor withPriority(Executor executor, Priority priority) {
+        if (executor instanceof PriorityExecutor) {
+            return ((PriorityExecutor) executor).withPriority(priority);
+        }
+        return executor;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.support.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size thread pool that runs queued tasks by priority, then in submission order.
+ * <p>
+ * The queue is bounded: when it is full, the lowest priority task among the queued ones and the
+ * new one is rejected. Rejected tasks are dropped, tasks that need to know implement
+ * {@link Rejectable}. {@link Priority#USER_VISIBLE} tasks are never rejected since a screen is
+ * waiting for them; if the queue only holds such tasks it grows past its capacity.
+ * <p>
+ * Queue depth, time spent waiting in the queue and running are tracked for monitoring.
+ */
+public class PriorityExecutor implements Executor {
+    public enum Priority {
+        // a visible screen is waiting for the result
+        USER_VISIBLE,
+        // the result will likely be needed soon, e.g. the next page of a list
+        PREFETCH,
+        // refreshes and maintenance nobody is waiting for
+        BACKGROUND
+    }
+
+    /**
+     * A task that is notified, on the submitting thread, if it is rejected.
+     */
+    public interface Rejectable extends Runnable {
+        void onRejected();
+    }
+
+    private final String name;
+    private final int capacity;
+    private final BlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+    private final ThreadPoolExecutor pool;
+    private final Map<Priority, Executor> executors = new EnumMap<>(Priority.class);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    public PriorityExecutor(String name, int threads, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new NamedThreadFactory(name));
+        // start the threads now so that every task goes through the queue
+        pool.prestartAllCoreThreads();
+        for (Priority priority : Priority.values()) {
+            executors.put(priority, command -> execute(priority, command));
+        }
+    }
+
+    /**
+     * Runs the command as {@link Priority#USER_VISIBLE}.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(Priority.USER_VISIBLE, command);
+    }
+
+    public void execute(@NonNull Priority priority, @NonNull Runnable command) {
+        Task task = new Task(priority, sequence.getAndIncrement(), command);
+        Task rejected = null;
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                Task lowest = findLowestQueued();
+                if (lowest != null && lowest.priority.compareTo(priority) > 0
+                        && queue.remove(lowest)) {
+                    rejected = lowest;
+                } else if (priority != Priority.USER_VISIBLE) {
+                    rejected = task;
+                }
+            }
+            if (rejected != task) {
+                pool.execute(task);
+                maxQueueDepth.set(Math.max(maxQueueDepth.get(), queue.size()));
+            }
+        }
+        if (rejected != null) {
+            rejectedCount.incrementAndGet();
+            if (rejected.command instanceof Rejectable) {
+                ((Rejectable) rejected.command).onRejected();
+            }
+        }
+    }
+
+    /**
+     * Returns an executor that runs its commands with the given priority.
+     */
+    public Executor withPriority(@NonNull Priority priority) {
+        return executors.get(priority);
+    }
+
+    private Task findLowestQueued() {
+        Task lowest = null;
+        for (Runnable runnable : queue) {
+            Task task = (Task) runnable;
+            if (lowest == null || task.compareTo(lowest) > 0) {
+                lowest = task;
+            }
+        }
+        return lowest;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getAverageWaitMillis() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / completed);
+    }
+
+    public long getAverageRunMillis() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / completed);
+    }
+
+    @Override
+    public String toString() {
+        return "PriorityExecutor{" +
+                "name=" + name +
+                ", queueDepth=" + getQueueDepth() +
+                ", maxQueueDepth=" + getMaxQueueDepth() +
+                ", completed=" + getCompletedCount() +
+                ", rejected=" + getRejectedCount() +
+                ", avgWaitMs=" + getAverageWaitMillis() +
+                ", avgRunMs=" + getAverageRunMillis() +
+                '}';
+    }
+
+    private class Task implements Runnable, Comparable<Task> {
+        final Priority priority;
+        final long sequence;
+        final Runnable command;
+        final long queuedAt = System.nanoTime();
+
+        Task(Priority priority, long sequence, Runnable command) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            totalWaitNanos.addAndGet(start - queuedAt);
+            try {
+                command.run();
+            } finally {
+                totalRunNanos.addAndGet(System.nanoTime() - start);
+                completedCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, name + "-" + count.incrementAndGet());
+        }
+    }
+}